@@ -0,0 +1,157 @@
+package app.bench;
+
+import app.server.MainServer;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+
+/**
+ * Throw-away SQLite database for benchmarks. {@link #open} must run before any server class
+ * reads {@code app.db.url}.
+ */
+public final class BenchDb {
+    public final String url;
+
+    private BenchDb(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Points the server at a fresh database file and creates the schema and default accounts.
+     */
+    public static BenchDb open(String name) throws Exception {
+        File f = new File(System.getProperty("java.io.tmpdir"), name + ".db");
+        if (f.exists() && !f.delete()) throw new IllegalStateException("Cannot delete " + f);
+        String url = "jdbc:sqlite:" + f.getAbsolutePath();
+        System.setProperty("app.db.url", url);
+        new MainServer(0); // runs schema.sql and seeds admin/employee1
+        return new BenchDb(url);
+    }
+
+    public Connection connect() throws Exception {
+        return DriverManager.getConnection(url);
+    }
+
+    /**
+     * Inserts {@code users} plain users, {@code employees - 1} extra employees (employee1 is the
+     * first) and then {@code appts} appointments. Returns the id of employee1.
+     */
+    public int seed(int users, int employees, int appts) throws Exception {
+        try (Connection c = connect()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO users (username, hash, salt, role) VALUES (?, 'x', 'x', ?)")) {
+                for (int i = 0; i < users; i++) {
+                    ps.setString(1, "bench_user_" + i);
+                    ps.setString(2, "USER");
+                    ps.addBatch();
+                }
+                for (int i = 1; i < employees; i++) {
+                    ps.setString(1, "bench_emp_" + i);
+                    ps.setString(2, "EMPLOYEE");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+        }
+        addAppointments(appts);
+        try (Connection c = connect()) {
+            return ids(c, "EMPLOYEE")[0];
+        }
+    }
+
+    /**
+     * Appends {@code appts} appointments spread round-robin over all users and employees, filling
+     * the half-hour slots of consecutive working days after the latest existing date.
+     */
+    public void addAppointments(int appts) throws Exception {
+        try (Connection c = connect()) {
+            c.setAutoCommit(false);
+            int[] userIds = ids(c, "USER");
+            int[] empIds = ids(c, "EMPLOYEE");
+
+            LocalDate day = LocalDate.of(2020, 1, 1);
+            try (PreparedStatement ps = c.prepareStatement("SELECT MAX(date) FROM appointments");
+                 java.sql.ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getString(1) != null) day = LocalDate.parse(rs.getString(1)).plusDays(1);
+            }
+            int slot = 0;
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO appointments "
+                    + "(user_id, employee_id, date, start_time, end_time, status) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < appts; i++) {
+                    int emp = empIds[i % empIds.length];
+                    if (i > 0 && i % empIds.length == 0 && ++slot == 16) {
+                        slot = 0;
+                        day = day.plusDays(1);
+                    }
+                    int minutes = 9 * 60 + slot * 30 + (slot >= 6 ? 60 : 0); // skip lunch
+                    ps.setInt(1, userIds[i % userIds.length]);
+                    ps.setInt(2, emp);
+                    ps.setString(3, day.toString());
+                    ps.setString(4, String.format("%02d:%02d", minutes / 60, minutes % 60));
+                    ps.setString(5, String.format("%02d:%02d", (minutes + 30) / 60, (minutes + 30) % 60));
+                    ps.setString(6, i % 3 == 0 ? "CONFIRMED" : "PENDING");
+                    ps.addBatch();
+                    if (i % 10_000 == 9_999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+        }
+    }
+
+    public void execute(String sql) throws Exception {
+        try (Connection c = connect(); java.sql.Statement st = c.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Name and {@code CREATE} statement of every index the schema and migrations made (SQLite's
+     * automatic indexes for UNIQUE and PRIMARY KEY constraints have no statement and are left out).
+     */
+    public java.util.Map<String, String> indexes() throws Exception {
+        java.util.Map<String, String> out = new java.util.LinkedHashMap<>();
+        try (Connection c = connect(); PreparedStatement ps = c.prepareStatement(
+                "SELECT name, sql FROM sqlite_master WHERE type = 'index' AND sql IS NOT NULL ORDER BY name");
+             java.sql.ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.put(rs.getString(1), rs.getString(2));
+        }
+        return out;
+    }
+
+    /**
+     * The {@code EXPLAIN QUERY PLAN} steps for {@code sql}, joined with "; ". Parameters are bound
+     * to NULL; SQLite picks the plan from the statement, not the values.
+     */
+    public String queryPlan(String sql) throws Exception {
+        try (Connection c = connect(); PreparedStatement ps = c.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) ps.setObject(i, null);
+            StringBuilder sb = new StringBuilder();
+            try (java.sql.ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (sb.length() > 0) sb.append("; ");
+                    sb.append(rs.getString("detail"));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private static int[] ids(Connection c, String role) throws Exception {
+        try (PreparedStatement ps = c.prepareStatement("SELECT id FROM users WHERE role = ? ORDER BY id")) {
+            ps.setString(1, role);
+            java.util.List<Integer> out = new java.util.ArrayList<>();
+            try (java.sql.ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(rs.getInt(1));
+            }
+            int[] r = new int[out.size()];
+            for (int i = 0; i < r.length; i++) r[i] = out.get(i);
+            return r;
+        }
+    }
+}
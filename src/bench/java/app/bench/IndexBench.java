@@ -0,0 +1,91 @@
+package app.bench;
+
+import app.server.MyBatisUtil;
+import app.server.mappers.AppointmentMapper;
+import app.server.mappers.UserMapper;
+import org.apache.ibatis.session.SqlSession;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Effect of the schema's indexes on the appointment queries as the table grows. For each size the
+ * queries are timed with every index the migrations created, then again after dropping all of
+ * them; later migrations add composite indexes on the same leading columns, so dropping only some
+ * would leave the queries indexed. The query plans of both phases are printed as {@code #} lines
+ * and checked: every query uses an index in the first phase and none in the second.
+ * <p>
+ * Usage: {@code mvn -Pbench compile exec:java -Dbench.main=app.bench.IndexBench -Dexec.args="10000,100000 200"}
+ */
+public class IndexBench {
+    private static final String[] QUERIES = {
+            "app.server.mappers.AppointmentMapper.findConflict",
+            "app.server.mappers.AppointmentMapper.listByEmployee",
+            "app.server.mappers.AppointmentMapper.listByUser",
+            "app.server.mappers.UserMapper.listEmployees",
+    };
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = (args.length > 0 ? args[0] : "10000,100000").split(",");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        BenchDb db = BenchDb.open("bench-indexes");
+        Map<String, String> indexes = db.indexes();
+        for (String name : indexes.keySet()) db.execute("DROP INDEX " + name);
+        int empId = db.seed(500, 50, 0);
+        int userId = empId + 1;
+        int loaded = 0;
+
+        System.out.println("rows,indexes,findConflict_us,listByEmployee_us,listByUser_us,listEmployees_us");
+        for (String size : sizes) {
+            int target = Integer.parseInt(size.trim());
+            db.addAppointments(target - loaded);
+            loaded = target;
+            for (String sql : indexes.values()) db.execute(sql);
+            measure(db, target, true, iterations, empId, userId);
+            for (String name : indexes.keySet()) db.execute("DROP INDEX " + name);
+            measure(db, target, false, iterations, empId, userId);
+        }
+    }
+
+    private static void measure(BenchDb db, int rows, boolean indexed, int iterations, int empId, int userId)
+            throws Exception {
+        Map<String, Object> conflict = new HashMap<>();
+        conflict.put("employeeId", empId);
+        conflict.put("date", "2020-03-02");
+        conflict.put("startTime", "10:00");
+        conflict.put("endTime", "10:30");
+        Object[] params = {conflict, empId, userId, null};
+        try (SqlSession s = MyBatisUtil.openSession()) {
+            for (int i = 0; i < QUERIES.length; i++) {
+                String sql = s.getConfiguration().getMappedStatement(QUERIES[i]).getBoundSql(params[i]).getSql();
+                String plan = db.queryPlan(sql);
+                System.out.printf("# %s %s: %s%n", indexed ? "yes" : "no", QUERIES[i], plan);
+                if (plan.contains(" INDEX idx_") != indexed) {
+                    throw new IllegalStateException(QUERIES[i] + (indexed ? " uses no index" : " still uses an index"));
+                }
+            }
+            AppointmentMapper am = s.getMapper(AppointmentMapper.class);
+            UserMapper um = s.getMapper(UserMapper.class);
+            double c = time(s, iterations, () -> am.findConflict(conflict));
+            double e = time(s, iterations, () -> am.listByEmployee(empId));
+            double u = time(s, iterations, () -> am.listByUser(userId));
+            double l = time(s, iterations, um::listEmployees);
+            System.out.printf("%d,%s,%.1f,%.1f,%.1f,%.1f%n", rows, indexed ? "yes" : "no", c, e, u, l);
+        }
+    }
+
+    /** Average microseconds per call; the local session cache is cleared between calls. */
+    private static double time(SqlSession s, int iterations, Runnable query) {
+        for (int i = 0; i < Math.max(5, iterations / 10); i++) {
+            s.clearCache();
+            query.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            s.clearCache();
+            query.run();
+        }
+        return (System.nanoTime() - start) / 1e3 / iterations;
+    }
+}
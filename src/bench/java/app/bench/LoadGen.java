@@ -0,0 +1,346 @@
+package app.bench;
+
+import app.client.Replies;
+import app.client.ServerConnection;
+import app.common.Protocol;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load generator for a running server. Simulated users and employees each hold a
+ * {@link ServerConnection}, log in with their own account (registered on first use) and issue a
+ * weighted mix of commands:
+ * <ul>
+ * <li>users: 40% BOOK of a random free-looking slot, 30% MY_APPTS, 20% LIST_EMPLOYEES, 10% LOGIN</li>
+ * <li>employees: 50% MY_APPTS, 40% CONFIRM of a pending appointment seen in the last listing,
+ * 10% LIST_EMPLOYEES</li>
+ * </ul>
+ * Closed loop (default): every client waits an exponentially distributed think time with mean
+ * {@code thinkMs} between commands. Open loop ({@code rate} &gt; 0): commands are started at
+ * {@code rate} per second in total by whichever client is idle, and latency is measured from the
+ * scheduled start, so a slow server shows up as queueing rather than as a lower offered load.
+ * <p>
+ * Prints throughput, replies by code and latency percentiles per command.
+ * Usage: {@code mvn -Pbench compile exec:java -Dbench.main=app.bench.LoadGen
+ * -Dexec.args="port=5555 users=50 employees=5 seconds=60 thinkMs=200 rate=0"}
+ */
+public class LoadGen {
+    private static final String PASSWORD = "load-pw";
+
+    private final String host;
+    private final int port;
+    private final int employees;
+    private final long thinkMs;
+
+    private LoadGen(String host, int port, int employees, long thinkMs) {
+        this.host = host;
+        this.port = port;
+        this.employees = employees;
+        this.thinkMs = thinkMs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        String host = opt.getOrDefault("host", "localhost");
+        int port = Integer.parseInt(opt.getOrDefault("port", "5555"));
+        int users = Integer.parseInt(opt.getOrDefault("users", "50"));
+        int employees = Integer.parseInt(opt.getOrDefault("employees", "5"));
+        int seconds = Integer.parseInt(opt.getOrDefault("seconds", "30"));
+        long thinkMs = Long.parseLong(opt.getOrDefault("thinkMs", "200"));
+        double rate = Double.parseDouble(opt.getOrDefault("rate", "0"));
+
+        LoadGen gen = new LoadGen(host, port, employees, thinkMs);
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < employees; i++) clients.add(gen.new Client("load_emp_" + i, true));
+        for (int i = 0; i < users; i++) clients.add(gen.new Client("load_user_" + i, false));
+
+        System.out.printf("%d users, %d employees, %ds, %s%n", users, employees, seconds,
+                rate > 0 ? "open loop at " + rate + "/s" : "closed loop, think " + thinkMs + "ms");
+        for (Client c : clients) c.setUp();
+        List<String> empIds = new ArrayList<>();
+        for (Client c : clients) if (c.employee && c.userId != null) empIds.add(c.userId);
+        if (empIds.isEmpty()) throw new IllegalStateException("No employee could log in");
+        for (Client c : clients) c.employeeIds = empIds;
+        for (Client c : clients) c.stats.clear(); // report the steady state only
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        if (rate > 0) gen.runOpenLoop(clients, rate, end);
+        else gen.runClosedLoop(clients, end);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        report(clients, elapsed);
+    }
+
+    private void runClosedLoop(List<Client> clients, long end) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clients.size());
+        for (Client c : clients) {
+            Thread t = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        c.step(System.nanoTime());
+                        sleep(think());
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + c.name);
+            t.setDaemon(true);
+            t.start();
+        }
+        done.await();
+    }
+
+    private void runOpenLoop(List<Client> clients, double rate, long end) throws InterruptedException {
+        BlockingQueue<Client> idle = new LinkedBlockingQueue<>(clients);
+        BlockingQueue<Long> due = new LinkedBlockingQueue<>();
+        int threads = clients.size();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    while (true) {
+                        Long scheduled = due.poll(100, TimeUnit.MILLISECONDS);
+                        if (scheduled == null) {
+                            if (System.nanoTime() >= end) return;
+                            continue;
+                        }
+                        Client c = idle.take();
+                        try {
+                            c.step(scheduled);
+                        } finally {
+                            idle.add(c);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        long interval = (long) (1e9 / rate);
+        for (long next = System.nanoTime(); next < end; next += interval) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            due.add(next);
+        }
+        // Work still queued at the end is dropped; it was offered after the run's deadline.
+        due.clear();
+        done.await();
+    }
+
+    private long think() {
+        return thinkMs <= 0 ? 0 : (long) (-thinkMs * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One simulated person with their own connection. Not thread-safe; used by one thread at a time.
+     */
+    private final class Client {
+        final String name;
+        final boolean employee;
+        final Map<String, CommandStats> stats = new HashMap<>();
+        List<String> employeeIds;
+        String userId;
+        private ServerConnection conn;
+        private final List<String> pending = new ArrayList<>();
+
+        Client(String name, boolean employee) {
+            this.name = name;
+            this.employee = employee;
+        }
+
+        void setUp() {
+            if (!connect()) return;
+            call("REGISTER", Protocol.CMD_REGISTER + " " + name + "|" + PASSWORD + "|" + (employee ? "EMPLOYEE" : "USER"),
+                    System.nanoTime());
+            login(System.nanoTime());
+        }
+
+        private boolean connect() {
+            conn = new ServerConnection(host, port);
+            return conn.connect();
+        }
+
+        private void login(long scheduled) {
+            List<List<Object>> r = call("LOGIN", Protocol.CMD_LOGIN + " " + name + "|" + PASSWORD, scheduled);
+            if (r != null && Replies.is(Replies.first(r), "OK")) userId = Replies.str(r.get(0), 1);
+        }
+
+        /** Runs one command of this client's mix; {@code scheduled} is when it was meant to start. */
+        void step(long scheduled) {
+            if (conn == null || !conn.isConnected()) {
+                if (!connect()) {
+                    record("CONNECT", "ConnectFailed", scheduled);
+                    return;
+                }
+                login(scheduled);
+                return;
+            }
+            int roll = ThreadLocalRandom.current().nextInt(100);
+            if (employee) {
+                if (roll < 50) myAppts(scheduled);
+                else if (roll < 90) confirm(scheduled);
+                else call("LIST_EMPLOYEES", Protocol.CMD_LIST_EMPS, scheduled);
+            } else {
+                if (roll < 40) book(scheduled);
+                else if (roll < 70) myAppts(scheduled);
+                else if (roll < 90) call("LIST_EMPLOYEES", Protocol.CMD_LIST_EMPS, scheduled);
+                else login(scheduled);
+            }
+        }
+
+        private void book(long scheduled) {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            String emp = employeeIds.get(rnd.nextInt(employeeIds.size()));
+            LocalDate day = LocalDate.now().plusDays(1 + rnd.nextInt(60));
+            int slot;
+            do {
+                slot = rnd.nextInt(Protocol.SLOTS_PER_DAY);
+            } while (isLunch(slot));
+            int minute = Protocol.DAY_START_MINUTE + slot * Protocol.SLOT_MINUTES;
+            String start = String.format("%02d:%02d", minute / 60, minute % 60);
+            int endMinute = minute + Protocol.SLOT_MINUTES;
+            String end = String.format("%02d:%02d", endMinute / 60, endMinute % 60);
+            call("BOOK", Protocol.CMD_BOOK + " " + emp + "|" + day + "|" + start + "|" + end, scheduled);
+        }
+
+        private void myAppts(long scheduled) {
+            List<List<Object>> r = call("MY_APPTS", Protocol.CMD_MY_APPTS, scheduled);
+            if (r == null || !employee) return;
+            pending.clear();
+            for (List<Object> rec : r) {
+                if (Replies.is(rec, "APPT") && "PENDING".equals(Replies.str(rec, rec.size() - 1))) {
+                    pending.add(Replies.str(rec, 1));
+                }
+            }
+        }
+
+        private void confirm(long scheduled) {
+            if (pending.isEmpty()) {
+                myAppts(scheduled);
+                return;
+            }
+            String id = pending.remove(pending.size() - 1);
+            call("CONFIRM", Protocol.CMD_CONFIRM + " " + id, scheduled);
+        }
+
+        /**
+         * Sends one command and records its latency and reply code; returns the reply records, or
+         * null when the connection failed (it is then closed and re-established on the next step).
+         */
+        private List<List<Object>> call(String label, String command, long scheduled) {
+            List<List<Object>> reply;
+            try {
+                reply = conn.pipeline(command).get(0);
+            } catch (IOException e) {
+                record(label, "IOError", scheduled);
+                conn.disconnect();
+                return null;
+            }
+            record(label, code(reply), scheduled);
+            return reply;
+        }
+
+        private void record(String label, String code, long scheduled) {
+            stats.computeIfAbsent(label, k -> new CommandStats()).add(code, System.nanoTime() - scheduled);
+        }
+    }
+
+    /** Same rule as the booking calendar: slots starting between 12:00 and 13:00 are never bookable. */
+    private static boolean isLunch(int slot) {
+        int minute = Protocol.DAY_START_MINUTE + slot * Protocol.SLOT_MINUTES;
+        return minute >= 12 * 60 && minute < 13 * 60;
+    }
+
+    /** "OK" for success, otherwise the error name after "ERROR". */
+    private static String code(List<List<Object>> reply) {
+        if (reply.isEmpty()) return "NoReply";
+        List<Object> first = reply.get(0);
+        if (Replies.is(first, "ERROR")) return first.size() > 1 ? Replies.str(first, 1).trim() : "Error";
+        if (Replies.is(first, Protocol.RESP_NOT_MODIFIED)) return "OK";
+        return Replies.is(first, "OK") ? "OK" : "Unexpected";
+    }
+
+    private static final class CommandStats {
+        final Map<String, Integer> codes = new TreeMap<>();
+        long[] nanos = new long[256];
+        int n;
+
+        void add(String code, long latency) {
+            codes.merge(code, 1, Integer::sum);
+            add0(latency);
+        }
+
+        void addAll(CommandStats o) {
+            o.codes.forEach((k, v) -> codes.merge(k, v, Integer::sum));
+            for (int i = 0; i < o.n; i++) add0(o.nanos[i]);
+        }
+
+        private void add0(long latency) {
+            if (n == nanos.length) nanos = Arrays.copyOf(nanos, n * 2);
+            nanos[n++] = latency;
+        }
+
+        void clear() {
+            codes.clear();
+            n = 0;
+        }
+
+        double percentileMs(long[] sorted, double p) {
+            if (n == 0) return 0;
+            int i = (int) Math.ceil(p / 100.0 * n) - 1;
+            return sorted[Math.max(0, Math.min(n - 1, i))] / 1e6;
+        }
+    }
+
+    private static void report(List<Client> clients, double elapsed) {
+        Map<String, CommandStats> all = new TreeMap<>();
+        for (Client c : clients) {
+            c.stats.forEach((k, v) -> all.computeIfAbsent(k, x -> new CommandStats()).addAll(v));
+        }
+        long total = 0, ok = 0;
+        for (CommandStats s : all.values()) {
+            total += s.n;
+            ok += s.codes.getOrDefault("OK", 0);
+        }
+        System.out.printf("%n%d commands in %.1fs: %.1f/s, %.1f%% OK%n", total, elapsed, total / elapsed,
+                total == 0 ? 0 : 100.0 * ok / total);
+        System.out.println("command,count,per_sec,p50_ms,p90_ms,p99_ms,max_ms,replies");
+        for (Map.Entry<String, CommandStats> e : all.entrySet()) {
+            CommandStats s = e.getValue();
+            long[] sorted = Arrays.copyOf(s.nanos, s.n);
+            Arrays.sort(sorted);
+            System.out.printf("%s,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%s%n", e.getKey(), s.n, s.n / elapsed,
+                    s.percentileMs(sorted, 50), s.percentileMs(sorted, 90), s.percentileMs(sorted, 99),
+                    s.percentileMs(sorted, 100), s.codes.toString().replace(", ", " ").replace(",", " "));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package app.bench;
+
+import app.common.models.Appointment;
+import app.server.MyBatisUtil;
+import app.server.mappers.AppointmentMapper;
+import app.server.mappers.UserMapper;
+import org.apache.ibatis.session.SqlSession;
+
+import java.util.List;
+
+/**
+ * MY_APPTS data access for one employee: the old per-row {@code usernameById} lookup versus the
+ * joined {@code listByEmployeeWithNames} query.
+ * <p>
+ * Usage: {@code mvn -Pbench compile exec:java -Dbench.main=app.bench.MyApptsBench -Dexec.args="2000 50"}
+ */
+public class MyApptsBench {
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        BenchDb db = BenchDb.open("bench-my-appts");
+        // a single employee owns every appointment so one refresh returns all rows
+        int empId = db.seed(200, 1, rows);
+
+        run("before (listByEmployee + usernameById)", iterations, () -> {
+            try (SqlSession s = MyBatisUtil.openSession()) {
+                AppointmentMapper am = s.getMapper(AppointmentMapper.class);
+                UserMapper um = s.getMapper(UserMapper.class);
+                List<Appointment> list = am.listByEmployee(empId);
+                int queries = 1;
+                for (Appointment a : list) {
+                    um.usernameById(a.getUserId());
+                    queries++;
+                }
+                return queries;
+            }
+        });
+        run("after  (listByEmployeeWithNames)", iterations, () -> {
+            try (SqlSession s = MyBatisUtil.openSession()) {
+                s.getMapper(AppointmentMapper.class).listByEmployeeWithNames(empId);
+                return 1;
+            }
+        });
+    }
+
+    interface Refresh {
+        int run() throws Exception;
+    }
+
+    private static void run(String label, int iterations, Refresh r) throws Exception {
+        for (int i = 0; i < Math.max(3, iterations / 10); i++) r.run(); // warm-up
+        long start = System.nanoTime();
+        int queries = 0;
+        for (int i = 0; i < iterations; i++) queries = r.run();
+        double avgMs = (System.nanoTime() - start) / 1e6 / iterations;
+        System.out.printf("%s: queries/refresh=%d avg=%.2f ms%n", label, queries, avgMs);
+    }
+}
@@ -0,0 +1,47 @@
+package app.bench.jmh;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH suite (or the benchmarks matching the given regexps) and writes the results as
+ * JSON to {@code target/jmh-result.json} unless {@code -rf}/{@code -rff} say otherwise. Any JMH
+ * command line option may be passed, e.g.
+ * {@code mvn -Pbench compile exec:java -Dbench.main=app.bench.jmh.JmhRunner -Dexec.args="QueryBenchmark -p rows=10000"}
+ * <p>
+ * Under {@code exec:java} the project classes are only on a class loader, not on
+ * {@code java.class.path}, so that property is rebuilt first or the forked benchmark JVMs
+ * would not find them.
+ */
+public class JmhRunner {
+    public static void main(String[] args) throws Exception {
+        ClassLoader cl = JmhRunner.class.getClassLoader();
+        if (cl instanceof URLClassLoader) {
+            StringBuilder cp = new StringBuilder();
+            for (URL u : ((URLClassLoader) cl).getURLs()) {
+                if (cp.length() > 0) cp.append(File.pathSeparatorChar);
+                cp.append(new File(u.toURI()).getPath());
+            }
+            System.setProperty("java.class.path", cp.toString());
+        }
+
+        List<String> argv = new ArrayList<>();
+        List<String> given = Arrays.asList(args);
+        if (!given.contains("-rf")) argv.addAll(Arrays.asList("-rf", "json"));
+        if (!given.contains("-rff")) {
+            new File("target").mkdirs();
+            argv.addAll(Arrays.asList("-rff", "target/jmh-result." + format(given)));
+        }
+        argv.addAll(given);
+        org.openjdk.jmh.Main.main(argv.toArray(new String[0]));
+    }
+
+    private static String format(List<String> args) {
+        int i = args.indexOf("-rf");
+        return i >= 0 && i + 1 < args.size() ? args.get(i + 1).toLowerCase() : "json";
+    }
+}
@@ -0,0 +1,74 @@
+package app.bench.jmh;
+
+import app.bench.BenchDb;
+import app.server.MyBatisUtil;
+import app.server.mappers.AppointmentMapper;
+import org.apache.ibatis.session.SqlSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The appointment queries behind BOOK and MY_APPTS against a database seeded with {@code rows}
+ * appointments over 50 employees. Each size runs in its own fork, since the server reads the
+ * database url once per JVM; keep {@code -f} at 1 or more.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private SqlSession session;
+    private AppointmentMapper mapper;
+    private int employeeId;
+    private final Map<String, Object> conflict = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchDb db = BenchDb.open("jmh-query-" + rows);
+        employeeId = db.seed(500, 50, rows);
+        conflict.put("employeeId", employeeId);
+        conflict.put("date", "2020-01-02");
+        conflict.put("startTime", "10:00");
+        conflict.put("endTime", "10:30");
+        session = MyBatisUtil.openSession();
+        mapper = session.getMapper(AppointmentMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    public Integer findConflict() {
+        session.clearCache(); // measure SQLite, not MyBatis' per-session cache
+        return mapper.findConflict(conflict);
+    }
+
+    @Benchmark
+    public List<?> listByEmployee() {
+        session.clearCache();
+        return mapper.listByEmployee(employeeId);
+    }
+}
@@ -0,0 +1,50 @@
+package app.bench.jmh;
+
+import app.bench.BenchDb;
+import app.server.MyBatisUtil;
+import org.apache.ibatis.session.SqlSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code MyBatisUtil.openSession()} and close around every request: once as is (MyBatis
+ * checks out a pooled connection lazily) and once with the connection actually taken.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionBenchmark {
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchDb.open("jmh-session");
+    }
+
+    @Benchmark
+    public Object openClose() {
+        try (SqlSession s = MyBatisUtil.openSession()) {
+            return s.getConfiguration();
+        }
+    }
+
+    @Benchmark
+    public Object openCloseWithConnection() throws Exception {
+        try (SqlSession s = MyBatisUtil.openSession()) {
+            return s.getConnection().getAutoCommit();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package app.server;
+
+import app.bench.BenchDb;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request parsing and reply formatting in {@link ClientHandler}, with replies written to a
+ * discarding stream. The commands chosen do not touch SQLite: NOT_MODIFIED employee lists and
+ * FREE_SLOTS (answered from the in-memory slot index), in text and binary framing.
+ * <p>
+ * Lives in {@code app.server} for the package-private handler entry points used by the NIO engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientHandlerBenchmark {
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private ClientHandler text;
+    private ClientHandler binary;
+    private String notModified;
+    private String taggedNotModified;
+    private String freeSlots;
+    private List<Object> freeSlotsFrame;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchDb.open("jmh-protocol");
+        long version = EmployeeDirectory.shared().get().version;
+        String token = SessionStore.shared().issue(2, "employee1", "EMPLOYEE");
+        LocalDate from = LocalDate.now().plusDays(1);
+        String range = "2|" + from + "|" + from.plusDays(30);
+
+        notModified = "LIST_EMPLOYEES " + version;
+        taggedNotModified = "#42 LIST_EMPLOYEES " + version;
+        freeSlots = "FREE_SLOTS " + range;
+        freeSlotsFrame = Arrays.asList(0, "FREE_SLOTS", "2", from.toString(), from.plusDays(30).toString());
+
+        text = new ClientHandler(DISCARD);
+        text.handleLine("RESUME " + token);
+        binary = new ClientHandler(DISCARD);
+        binary.handleLine("RESUME " + token);
+        binary.handleLine("PROTO BINARY");
+        text.flush();
+        binary.flush();
+    }
+
+    @Benchmark
+    public boolean textNotModified() {
+        boolean r = text.handleLine(notModified);
+        text.flush();
+        return r;
+    }
+
+    @Benchmark
+    public boolean textTaggedNotModified() {
+        boolean r = text.handleLine(taggedNotModified);
+        text.flush();
+        return r;
+    }
+
+    /** 31 FREE lines plus count and END. */
+    @Benchmark
+    public boolean textFreeSlotsMonth() {
+        boolean r = text.handleLine(freeSlots);
+        text.flush();
+        return r;
+    }
+
+    @Benchmark
+    public boolean binaryFreeSlotsMonth() {
+        boolean r = binary.handleFrame(freeSlotsFrame);
+        binary.flush();
+        return r;
+    }
+}
@@ -0,0 +1,89 @@
+package app.client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking front end for {@link ServerConnection}. Every call is queued to one I/O thread
+ * that owns the socket, so requests go out in call order and never overlap, and the caller gets
+ * a {@link CompletableFuture} instead of waiting. Futures complete on the I/O thread; UI code
+ * should continue on the event dispatch thread, e.g. with {@code thenAcceptAsync(f, SwingUtilities::invokeLater)}.
+ */
+public class AsyncServerConnection {
+    private final ServerConnection conn;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "server-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AsyncServerConnection(String host, int port) {
+        this.conn = new ServerConnection(host, port);
+    }
+
+    public CompletableFuture<Boolean> connect() {
+        return CompletableFuture.supplyAsync(conn::connect, io);
+    }
+
+    public CompletableFuture<Void> disconnect() {
+        return CompletableFuture.runAsync(conn::disconnect, io);
+    }
+
+    public boolean isConnected() {
+        return conn.isConnected();
+    }
+
+    /**
+     * Sends one command and completes with all of its reply records (see
+     * {@link ServerConnection#command}). The command goes out tagged, so the reply is complete
+     * when the server says so, whatever the command. A connection that
+     * fails mid-request is closed, so {@link #isConnected()} reports it.
+     */
+    public CompletableFuture<List<List<Object>>> request(String command) {
+        return submit(() -> conn.pipeline(command).get(0));
+    }
+
+    /**
+     * Like {@link #request(String)}, but with each argument sent as its own field; see
+     * {@link ServerConnection#command}. Use it for values typed by the user.
+     */
+    public CompletableFuture<List<List<Object>>> command(String cmd, Object... args) {
+        return submit(() -> conn.command(cmd, args));
+    }
+
+    private interface Call {
+        List<List<Object>> run() throws IOException;
+    }
+
+    private CompletableFuture<List<List<Object>>> submit(Call call) {
+        CompletableFuture<List<List<Object>>> f = new CompletableFuture<>();
+        io.execute(() -> {
+            try {
+                f.complete(call.run());
+            } catch (IOException | RuntimeException e) {
+                conn.disconnect();
+                f.completeExceptionally(e);
+            }
+        });
+        return f;
+    }
+
+    /**
+     * See {@link ServerConnection#subscribe}; the listener is called on the event reader thread.
+     */
+    public CompletableFuture<Boolean> subscribe(Consumer<List<Object>> listener) {
+        CompletableFuture<Boolean> f = new CompletableFuture<>();
+        io.execute(() -> {
+            try {
+                f.complete(conn.subscribe(listener));
+            } catch (IOException | RuntimeException e) {
+                f.completeExceptionally(e);
+            }
+        });
+        return f;
+    }
+}
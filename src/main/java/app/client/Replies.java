@@ -0,0 +1,47 @@
+package app.client;
+
+import java.util.List;
+
+/**
+ * Reading reply records, {@code [kind, fields...]} as returned by {@link ServerConnection#command}.
+ * Over frames numeric fields are {@link Integer}s, in text mode strings; these accessors take
+ * either.
+ */
+public final class Replies {
+    private Replies() {
+    }
+
+    /** The first record of a reply, or null if it had none. */
+    public static List<Object> first(List<List<Object>> reply) {
+        return reply == null || reply.isEmpty() ? null : reply.get(0);
+    }
+
+    public static String kind(List<Object> rec) {
+        return rec == null || rec.isEmpty() ? null : String.valueOf(rec.get(0));
+    }
+
+    public static boolean is(List<Object> rec, String kind) {
+        return kind.equals(kind(rec));
+    }
+
+    /** Field {@code i} (1 is the first after the kind) as a string, or null if absent. */
+    public static String str(List<Object> rec, int i) {
+        return rec == null || i >= rec.size() || rec.get(i) == null ? null : String.valueOf(rec.get(i));
+    }
+
+    public static int num(List<Object> rec, int i) {
+        Object v = rec.get(i);
+        return v instanceof Integer ? (Integer) v : Integer.parseInt(String.valueOf(v).trim());
+    }
+
+    /** The record as one line for messages, fields separated by spaces, e.g. {@code ERROR SlotTaken}. */
+    public static String text(List<Object> rec) {
+        if (rec == null) return null;
+        StringBuilder sb = new StringBuilder();
+        for (Object f : rec) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(f);
+        }
+        return sb.toString();
+    }
+}
@@ -3,6 +3,8 @@ package app.client;
 import app.common.Protocol;
 import app.common.models.Role;
 import app.client.ui.ConnectionStatusLabel;
+import app.client.ui.PagedListModel;
+import app.client.ui.SlotCalendar;
 import app.client.DPIUtil;
 
 import javax.swing.*;
@@ -10,26 +12,35 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
 import java.util.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public class SchedulerGUI extends JFrame {
     private final String host;
     private final int port;
 
-    private ServerConnection server;
+    private final AsyncServerConnection server;
+    private final AtomicBoolean connecting = new AtomicBoolean();
+    // Runs continuations of server requests on the Swing event thread
+    private static final Executor EDT = SwingUtilities::invokeLater;
 
     private volatile Integer loggedUserId = null;
     private volatile String loggedUsername = null;
     private volatile Role loggedRole = null;
+    // Token from LOGIN, replayed with RESUME after a reconnect
+    private volatile String sessionToken = null;
 
     // UI Components
     private final ConnectionStatusLabel connectionStatusLabel;
     private final JLabel lblWelcome;
     private final JButton btnLoginAction;
+    private final JLabel lblNotice;
 
     // Dashboard Buttons
     private JButton btnBook;
@@ -40,10 +51,18 @@ public class SchedulerGUI extends JFrame {
 
     private Timer connectionTimer;
 
+    // Employee list from the last LIST_EMPLOYEES and its server version
+    private List<String> cachedEmployees = new ArrayList<>();
+    private String employeesVersion = null;
+
+    // Appointment list paging: rows per MY_APPTS_PAGE request and pages kept in memory
+    private static final int APPT_PAGE_SIZE = 100;
+    private static final int APPT_PAGES_CACHED = 10;
+
     public SchedulerGUI(String host, int port) {
         this.host = host;
         this.port = port;
-        this.server = new ServerConnection(host, port);
+        this.server = new AsyncServerConnection(host, port);
 
         setTitle("Appointment Scheduler System");
         setSize(DPIUtil.scale(1000), DPIUtil.scale(700));
@@ -94,6 +113,11 @@ public class SchedulerGUI extends JFrame {
         updateDashboardState();
         add(dashboardPanel, BorderLayout.CENTER);
 
+        // --- Footer: latest pushed appointment event ---
+        lblNotice = new JLabel(" ");
+        lblNotice.setBorder(new EmptyBorder(DPIUtil.scale(6), DPIUtil.scale(20), DPIUtil.scale(6), DPIUtil.scale(20)));
+        add(lblNotice, BorderLayout.SOUTH);
+
         autoConnect();
     }
 
@@ -145,25 +169,18 @@ public class SchedulerGUI extends JFrame {
 
     // --- Admin Feature ---
     private void openAdminDialog() {
+        // Fetch Users using Protocol constant
+        call(Protocol.CMD_ADMIN_LIST, null, this::showAdminDialog);
+    }
+
+    private void showAdminDialog(List<List<Object>> reply) {
         JDialog dlg = new JDialog(this, "Admin Management", true);
         dlg.setLayout(new BorderLayout());
 
         DefaultTableModel tableModel = new DefaultTableModel(new String[]{"ID", "Username", "Role"}, 0);
         JTable table = new JTable(tableModel);
-
-        // Fetch Users using Protocol constant
-        server.send(Protocol.CMD_ADMIN_LIST);
-        try {
-            String line;
-            while ((line = server.readResponse()) != null) {
-                if ("END".equals(line)) break;
-                if (line.startsWith("USER ")) {
-                    String[] parts = line.substring(5).split("\\|");
-                    tableModel.addRow(parts);
-                }
-            }
-        } catch (Exception e) {
-            return;
+        for (List<Object> rec : reply) {
+            if (Replies.is(rec, "USER")) tableModel.addRow(rec.subList(1, rec.size()).toArray());
         }
 
         JPanel btnPanel = new JPanel();
@@ -182,51 +199,45 @@ public class SchedulerGUI extends JFrame {
             JPasswordField pfPass = new JPasswordField();
             Object[] msg = {"Username:", tfUser, "Password:", pfPass, "Role (USER/EMPLOYEE/ADMIN):", tfRole};
             if (JOptionPane.showConfirmDialog(dlg, msg, "Add User", JOptionPane.OK_CANCEL_OPTION) == JOptionPane.OK_OPTION) {
-                String cmd = Protocol.CMD_ADMIN_ADD + " " + tfUser.getText() + "|" + new String(pfPass.getPassword()) + "|" + tfRole.getText();
-                server.send(cmd);
-                try {
-                    JOptionPane.showMessageDialog(dlg, server.readResponse());
+                call(server.command(Protocol.CMD_ADMIN_ADD, tfUser.getText(), new String(pfPass.getPassword()),
+                        tfRole.getText()), null, r -> {
+                    JOptionPane.showMessageDialog(dlg, first(r));
                     dlg.dispose();
                     openAdminDialog();
-                } catch (Exception ex) {
-                }
+                });
             }
         });
 
         btnEdit.addActionListener(e -> {
             int row = table.getSelectedRow();
             if (row < 0) return;
-            String id = (String) tableModel.getValueAt(row, 0);
-            String currUser = (String) tableModel.getValueAt(row, 1);
-            String currRole = (String) tableModel.getValueAt(row, 2);
+            String id = String.valueOf(tableModel.getValueAt(row, 0));
+            String currUser = String.valueOf(tableModel.getValueAt(row, 1));
+            String currRole = String.valueOf(tableModel.getValueAt(row, 2));
 
             JTextField tfUser = new JTextField(currUser), tfRole = new JTextField(currRole);
             JPasswordField pfPass = new JPasswordField();
             Object[] msg = {"Username:", tfUser, "New Password (leave empty to keep):", pfPass, "Role:", tfRole};
             if (JOptionPane.showConfirmDialog(dlg, msg, "Edit User", JOptionPane.OK_CANCEL_OPTION) == JOptionPane.OK_OPTION) {
-                String cmd = Protocol.CMD_ADMIN_UPDATE + " " + id + "|" + tfUser.getText() + "|" + new String(pfPass.getPassword()) + "|" + tfRole.getText();
-                server.send(cmd);
-                try {
-                    JOptionPane.showMessageDialog(dlg, server.readResponse());
+                call(server.command(Protocol.CMD_ADMIN_UPDATE, id, tfUser.getText(),
+                        new String(pfPass.getPassword()), tfRole.getText()), null, r -> {
+                    JOptionPane.showMessageDialog(dlg, first(r));
                     dlg.dispose();
                     openAdminDialog();
-                } catch (Exception ex) {
-                }
+                });
             }
         });
 
         btnDelete.addActionListener(e -> {
             int row = table.getSelectedRow();
             if (row < 0) return;
-            String id = (String) tableModel.getValueAt(row, 0);
+            String id = String.valueOf(tableModel.getValueAt(row, 0));
             if (JOptionPane.showConfirmDialog(dlg, "Delete User ID " + id + "?") == JOptionPane.YES_OPTION) {
-                server.send(Protocol.CMD_ADMIN_DELETE + " " + id);
-                try {
-                    JOptionPane.showMessageDialog(dlg, server.readResponse());
+                call(Protocol.CMD_ADMIN_DELETE + " " + id, null, r -> {
+                    JOptionPane.showMessageDialog(dlg, first(r));
                     dlg.dispose();
                     openAdminDialog();
-                } catch (Exception ex) {
-                }
+                });
             }
         });
 
@@ -241,29 +252,101 @@ public class SchedulerGUI extends JFrame {
         connectionTimer.scheduleAtFixedRate(new TimerTask() {
             @Override
             public void run() {
-                if (!server.isConnected()) {
-                    SwingUtilities.invokeLater(() -> {
-                        connectionStatusLabel.startReconnecting();
-                        btnLoginAction.setEnabled(false);
-                        if (loggedUserId != null) {
-                            loggedUserId = null;
-                            updateDashboardState();
-                        }
-                    });
-                    if (server.connect()) {
-                        SwingUtilities.invokeLater(() -> {
+                if (server.isConnected() || !connecting.compareAndSet(false, true)) return;
+                SwingUtilities.invokeLater(() -> {
+                    connectionStatusLabel.startReconnecting();
+                    btnLoginAction.setEnabled(false);
+                    if (loggedUserId != null && sessionToken == null) {
+                        loggedUserId = null;
+                        updateDashboardState();
+                    }
+                });
+                server.connect()
+                        .thenCompose(ok -> ok ? resumeSession() : CompletableFuture.completedFuture((Boolean) null))
+                        .whenCompleteAsync((resumed, err) -> {
+                            connecting.set(false);
+                            if (err != null || resumed == null) return; // still offline, retry on the next tick
                             connectionStatusLabel.setConnected();
                             btnLoginAction.setEnabled(true);
-                        });
-                    }
-                }
+                            if (!resumed && loggedUserId != null) {
+                                loggedUserId = null;
+                                updateDashboardState();
+                            }
+                        }, EDT);
             }
         }, 0, 2000);
     }
 
+    /**
+     * Restores the login on a fresh connection from the saved session token. Completes with
+     * false when there is none or the server no longer accepts it.
+     */
+    private CompletableFuture<Boolean> resumeSession() {
+        String token = sessionToken;
+        if (token == null) return CompletableFuture.completedFuture(false);
+        return server.request(Protocol.CMD_RESUME + " " + token).handle((reply, err) -> {
+            List<Object> r = err == null ? Replies.first(reply) : null;
+            if (Replies.is(r, "OK")) {
+                // Response: OK ID|Username|Role
+                loggedUserId = Replies.num(r, 1);
+                subscribeEvents();
+                return true;
+            }
+            sessionToken = null;
+            return false;
+        });
+    }
+
+    /**
+     * Asks the server to push appointment events for the logged-in user; each one is shown in
+     * the footer. Notifications are optional, so a refusal is ignored.
+     */
+    private void subscribeEvents() {
+        server.subscribe(ev -> SwingUtilities.invokeLater(() -> showEvent(ev)));
+    }
+
+    private void showEvent(List<Object> f) {
+        if (Protocol.EVENT_APPT_CREATED.equals(f.get(0)) && f.size() >= 8) {
+            boolean mine = loggedRole == Role.EMPLOYEE;
+            lblNotice.setText((mine ? "New booking request #" : "Booked appointment #") + f.get(1)
+                    + " on " + f.get(4) + " " + f.get(5) + "-" + f.get(6) + " (" + f.get(7) + ")");
+        } else if (Protocol.EVENT_APPT_STATUS.equals(f.get(0)) && f.size() >= 3) {
+            lblNotice.setText("Appointment #" + f.get(1) + " is now " + f.get(2));
+        }
+    }
+
+    /**
+     * Sends a command without blocking the EDT; {@code onReply} later runs on the EDT with the
+     * reply records. On a network failure it is skipped, and {@code errorParent}, if given, shows
+     * "Network Error". The returned future completes on the EDT once either has happened, so
+     * callers can undo UI state (e.g. re-enable a button) on both paths.
+     */
+    private CompletableFuture<Void> call(String command, Component errorParent, Consumer<List<List<Object>>> onReply) {
+        return call(server.request(command), errorParent, onReply);
+    }
+
+    /**
+     * As above for a request already sent, e.g. with {@link AsyncServerConnection#command} for
+     * values typed by the user.
+     */
+    private CompletableFuture<Void> call(CompletableFuture<List<List<Object>>> request, Component errorParent,
+                                         Consumer<List<List<Object>>> onReply) {
+        return request.handleAsync((reply, err) -> {
+            if (err == null) onReply.accept(reply);
+            else if (errorParent != null) JOptionPane.showMessageDialog(errorParent, "Network Error");
+            return null;
+        }, EDT);
+    }
+
+    /** The first reply record as text for a message, e.g. "ERROR SlotTaken". */
+    private static String first(List<List<Object>> reply) {
+        return Replies.text(Replies.first(reply));
+    }
+
     private void handleLoginLogoutAction() {
         if (loggedUserId == null) showLoginDialog();
         else {
+            sessionToken = null;
             server.disconnect(); // Explicitly disconnect
             loggedUserId = null;
             loggedUsername = null;
@@ -302,149 +385,155 @@ public class SchedulerGUI extends JFrame {
             String p = new String(pf.getPassword());
             if (u.isEmpty()) return;
 
-            server.send(Protocol.CMD_LOGIN + " " + u + "|" + p);
-            try {
-                String r = server.readResponse();
-                if (r != null && r.startsWith("OK ")) {
-                    // Response: OK ID|Username|Role
-                    String[] parts = r.substring(3).split("\\|");
-                    loggedUserId = Integer.parseInt(parts[0]);
-                    loggedUsername = parts.length > 1 ? parts[1] : u;
+            btnLogin.setEnabled(false);
+            call(server.command(Protocol.CMD_LOGIN, u, p), dlg, reply -> {
+                List<Object> r = Replies.first(reply);
+                if (Replies.is(r, "OK")) {
+                    // Response: OK ID|Username|Role|SessionToken
+                    sessionToken = Replies.str(r, 4);
+                    loggedUserId = Replies.num(r, 1);
+                    loggedUsername = r.size() > 2 ? Replies.str(r, 2) : u;
                     // Parse Role
                     try {
-                        loggedRole = Role.valueOf(parts.length > 2 ? parts[2].toUpperCase() : "USER");
+                        loggedRole = Role.valueOf(r.size() > 3 ? Replies.str(r, 3).toUpperCase() : "USER");
                     } catch (IllegalArgumentException ex) {
                         loggedRole = Role.USER;
                     }
 
                     updateDashboardState();
+                    subscribeEvents();
                     dlg.dispose();
-                } else JOptionPane.showMessageDialog(dlg, "Login Failed: " + r);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(dlg, "Network Error");
-            }
+                } else JOptionPane.showMessageDialog(dlg, "Login Failed: " + Replies.text(r));
+            }).whenComplete((v, err) -> btnLogin.setEnabled(true));
         });
 
         btnSignup.addActionListener(e -> {
             String u = tfUser.getText().trim();
             String p = new String(pf.getPassword());
             if (u.isEmpty()) return;
-            server.send(Protocol.CMD_REGISTER + " " + u + "|" + p + "|USER");
-            try {
-                String r = server.readResponse();
-                if (r != null && r.startsWith("OK")) JOptionPane.showMessageDialog(dlg, "Registered! Please Login.");
-                else JOptionPane.showMessageDialog(dlg, "Register Error: " + r);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(dlg, "Network Error");
-            }
+            call(server.command(Protocol.CMD_REGISTER, u, p, "USER"), dlg, reply -> {
+                if (Replies.is(Replies.first(reply), "OK")) JOptionPane.showMessageDialog(dlg, "Registered! Please Login.");
+                else JOptionPane.showMessageDialog(dlg, "Register Error: " + first(reply));
+            });
         });
         dlg.setVisible(true);
     }
 
     private void openBookingDialog() {
-        server.send(Protocol.CMD_LIST_EMPS);
-        List<String> employees = new ArrayList<>();
-        try {
-            String line;
-            while ((line = server.readResponse()) != null) {
-                if ("END".equals(line)) break;
-                if (line.startsWith("EMP ")) employees.add(line.substring(4));
-            }
-        } catch (Exception e) {
-            return;
-        }
+        fetchEmployees().thenAcceptAsync(this::showBookingDialog, EDT);
+    }
 
+    private void showBookingDialog(List<String> employees) {
         JDialog dlg = new JDialog(this, "Book Appointment", true);
         dlg.setLayout(new BorderLayout(10, 10));
         JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
         top.add(new JLabel("Select Employee:"));
         JComboBox<String> cb = new JComboBox<>(employees.toArray(new String[0]));
         top.add(cb);
+        JComboBox<String> cbRange = new JComboBox<>(new String[]{"Week", "Month"});
+        JButton btnPrev = new JButton("<");
+        JButton btnNext = new JButton(">");
+        top.add(new JLabel("Show:"));
+        top.add(cbRange);
+        top.add(btnPrev);
+        top.add(btnNext);
         dlg.add(top, BorderLayout.NORTH);
 
-        JPanel grid = new JPanel(new GridLayout(0, 3, 5, 5));
-        int x = DPIUtil.scale(10);
-        grid.setBorder(new EmptyBorder(x, x, x, x));
-        List<JToggleButton> toggles = new ArrayList<>();
-        ButtonGroup group = new ButtonGroup();
-
-        LocalDate startDate = LocalDate.now().plusDays(1);
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-        for (int i = 0; i < 5; i++) {
-            LocalDate d = startDate.plusDays(i);
-            for (int h = 9; h < 18; h++) {
-                if (h == 12) continue;
-                String t1 = String.format("%02d:00", h);
-                String label = d.format(fmt) + " " + t1;
-                JToggleButton btn = new JToggleButton(label);
-                group.add(btn);
-                toggles.add(btn);
-                grid.add(btn);
-            }
-        }
-        dlg.add(new JScrollPane(grid), BorderLayout.CENTER);
+        SlotCalendar calendar = new SlotCalendar();
+        calendar.setRange(LocalDate.now().plusDays(1), 7);
+        JScrollPane scroll = new JScrollPane(calendar);
+        scroll.setColumnHeaderView(calendar.createHeader());
+        dlg.add(scroll, BorderLayout.CENTER);
+
+        // Week pages by 7 days, month by calendar month; never earlier than tomorrow.
+        Runnable reload = () -> markTakenSlots((String) cb.getSelectedItem(), calendar);
+        IntConsumer move = dir -> {
+            boolean month = cbRange.getSelectedIndex() == 1;
+            LocalDate tomorrow = LocalDate.now().plusDays(1);
+            LocalDate from = calendar.getFrom();
+            if (month) from = dir == 0 ? tomorrow : from.withDayOfMonth(1).plusMonths(dir);
+            else from = dir == 0 ? tomorrow : from.plusDays(7L * dir);
+            if (from.isBefore(tomorrow)) from = tomorrow;
+            int days = month ? (int) (from.withDayOfMonth(1).plusMonths(1).toEpochDay() - from.toEpochDay()) : 7;
+            calendar.setRange(from, days);
+            scroll.getVerticalScrollBar().setValue(0);
+            reload.run();
+        };
+        cb.addActionListener(e -> reload.run());
+        cbRange.addActionListener(e -> move.accept(0));
+        btnPrev.addActionListener(e -> move.accept(-1));
+        btnNext.addActionListener(e -> move.accept(1));
+        reload.run();
 
         JButton btnConfirm = new JButton("Confirm Booking");
         btnConfirm.setBackground(new Color(40, 167, 69));
         btnConfirm.setForeground(Color.WHITE);
         btnConfirm.addActionListener(e -> {
             String emp = (String) cb.getSelectedItem();
-            if (emp == null) return;
+            LocalDate date = calendar.getSelectedDate();
+            if (emp == null || date == null) return;
             String empId = emp.split(":")[0];
-            for (JToggleButton t : toggles) {
-                if (t.isSelected()) {
-                    String[] parts = t.getText().split(" ");
-                    String start = parts[1];
-                    String end = LocalTime.parse(start).plusMinutes(30).toString();
-                    server.send(Protocol.CMD_BOOK + " " + empId + "|" + parts[0] + "|" + start + "|" + end);
-                    try {
-                        String resp = server.readResponse();
-                        JOptionPane.showMessageDialog(dlg, resp);
-                        if (resp.startsWith("OK")) dlg.dispose();
-                    } catch (Exception ex) {
-                    }
-                    return;
-                }
-            }
+            String start = calendar.getSelectedStart().toString();
+            String end = calendar.getSelectedStart().plusMinutes(Protocol.SLOT_MINUTES).toString();
+            btnConfirm.setEnabled(false);
+            call(Protocol.CMD_BOOK + " " + empId + "|" + date + "|" + start + "|" + end, dlg, reply -> {
+                JOptionPane.showMessageDialog(dlg, first(reply));
+                if (Replies.is(Replies.first(reply), "OK")) dlg.dispose();
+                else reload.run();
+            }).whenComplete((v, err) -> btnConfirm.setEnabled(true));
         });
         dlg.add(btnConfirm, BorderLayout.SOUTH);
-        dlg.setSize(DPIUtil.scale(800), DPIUtil.scale(600));
+        dlg.setSize(DPIUtil.scale(1000), DPIUtil.scale(600));
         dlg.setLocationRelativeTo(this);
         dlg.setVisible(true);
     }
 
-    private void showAppointments() {
-        server.send(Protocol.CMD_MY_APPTS);
-        DefaultListModel<String> model = new DefaultListModel<>();
-        try {
-            String line;
-            while ((line = server.readResponse()) != null) {
-                if ("END".equals(line)) break;
-                if (line.startsWith("APPT ")) model.addElement(line.substring(5));
+    /**
+     * Marks the slots the server reports as taken for the selected employee, once the reply
+     * arrives. Days stay selectable when availability is unknown (e.g. an older server).
+     */
+    private void markTakenSlots(String emp, SlotCalendar calendar) {
+        if (emp == null) return;
+        LocalDate from = calendar.getFrom(), to = calendar.getTo();
+        call(Protocol.CMD_FREE_SLOTS + " " + emp.split(":")[0] + "|" + from + "|" + to, null, reply -> {
+            // The user may have moved on to another range while this was in flight.
+            if (!from.equals(calendar.getFrom()) || !to.equals(calendar.getTo())) return;
+            Map<LocalDate, Integer> free = new HashMap<>();
+            for (List<Object> rec : reply) {
+                if (Replies.is(rec, "ERROR")) return;
+                if (Replies.is(rec, "FREE")) {
+                    free.put(LocalDate.parse(Replies.str(rec, 1)), Integer.parseInt(Replies.str(rec, 2), 16));
+                }
             }
-        } catch (Exception e) {
-            return;
-        }
+            calendar.setFreeMasks(free);
+        });
+    }
+
+    /**
+     * Opens right away; rows are fetched page by page with MY_APPTS_PAGE as the list scrolls.
+     */
+    private void showAppointments() {
+        PagedListModel model = new PagedListModel(server, Protocol.CMD_MY_APPTS_PAGE, "APPT",
+                APPT_PAGE_SIZE, APPT_PAGES_CACHED);
 
         JDialog dlg = new JDialog(this, "Appointments", true);
         dlg.setLayout(new BorderLayout());
         JList<String> list = new JList<>(model);
+        // A fixed height keeps JList from reading every row to measure it.
+        list.setFixedCellHeight(DPIUtil.scale(22));
+        list.setPrototypeCellValue("000000|wwwwwwwwwwww|2000-01-01|00:00|CONFIRMED");
         dlg.add(new JScrollPane(list), BorderLayout.CENTER);
 
         if (loggedRole == Role.EMPLOYEE) {
             JButton btnConf = new JButton("Approve Selected");
             btnConf.addActionListener(e -> {
-                String val = list.getSelectedValue();
-                if (val != null) {
-                    String id = val.split("\\|")[0];
-                    server.send(Protocol.CMD_CONFIRM + " " + id);
-                    try {
-                        JOptionPane.showMessageDialog(dlg, server.readResponse());
-                        dlg.dispose();
-                        showAppointments();
-                    } catch (Exception ex) {
-                    }
+                int index = list.getSelectedIndex();
+                if (index >= 0 && model.isLoaded(index)) {
+                    Object id = model.rowAt(index).get(0);
+                    call(Protocol.CMD_CONFIRM + " " + id, null, reply -> {
+                        JOptionPane.showMessageDialog(dlg, first(reply));
+                        model.reload(index);
+                    });
                 }
             });
             dlg.add(btnConf, BorderLayout.SOUTH);
@@ -455,24 +544,38 @@ public class SchedulerGUI extends JFrame {
     }
 
     private void showEmployeeDialog() {
-        server.send(Protocol.CMD_LIST_EMPS);
-        List<String> employees = new ArrayList<>();
-        try {
-            String line;
-            while ((line = server.readResponse()) != null) {
-                if ("END".equals(line)) break;
-                if (line.startsWith("EMP ")) employees.add(line.substring(4));
+        fetchEmployees().thenAcceptAsync(employees -> {
+            JDialog dlg = new JDialog(this, "Employees", true);
+            DefaultListModel<String> model = new DefaultListModel<>();
+            for (String s : employees) model.addElement(s);
+            dlg.add(new JScrollPane(new JList<>(model)), BorderLayout.CENTER);
+            dlg.setSize(DPIUtil.scale(300), DPIUtil.scale(400));
+            dlg.setLocationRelativeTo(this);
+            dlg.setVisible(true);
+        }, EDT);
+    }
+
+    /**
+     * Employee list ("id:username"), re-downloaded only when the server's version differs from
+     * the copy kept from the previous call. The copy is only touched on the EDT.
+     */
+    private CompletableFuture<List<String>> fetchEmployees() {
+        String known = employeesVersion;
+        return server.request(Protocol.CMD_LIST_EMPS + (known != null ? " " + known : "")).thenApplyAsync(reply -> {
+            List<String> fresh = new ArrayList<>();
+            String version = null;
+            boolean notModified = false;
+            for (List<Object> rec : reply) {
+                if (Replies.is(rec, "ERROR")) break;
+                if (Replies.is(rec, "EMP")) fresh.add(Replies.str(rec, 1) + ":" + Replies.str(rec, 2));
+                else if (Replies.is(rec, "VERSION")) version = Replies.str(rec, 1);
+                else if (Replies.is(rec, Protocol.RESP_NOT_MODIFIED)) notModified = true;
             }
-        } catch (Exception e) {
-            return;
-        }
-        JDialog dlg = new JDialog(this, "Employees", true);
-        DefaultListModel<String> model = new DefaultListModel<>();
-        for (String s : employees) model.addElement(s);
-        dlg.add(new JScrollPane(new JList<>(model)), BorderLayout.CENTER);
-        dlg.setSize(DPIUtil.scale(300), DPIUtil.scale(400));
-        dlg.setLocationRelativeTo(this);
-        dlg.setVisible(true);
+            if (notModified) return cachedEmployees;
+            cachedEmployees = fresh;
+            employeesVersion = version;
+            return fresh;
+        }, EDT);
     }
 
     // --- Helpers ---
@@ -1,14 +1,42 @@
 package app.client;
 
+import app.common.Protocol;
+import app.common.WireCodec;
+
 import java.io.*;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class ServerConnection {
+    // Frames are used whenever the server offers them; -Dapp.client.binary=false keeps text lines.
+    private static final boolean PREFER_BINARY =
+            !"false".equalsIgnoreCase(System.getProperty("app.client.binary", "true"));
+
     private final String host;
     private final int port;
-    private Socket socket;
+    private volatile Socket socket;
     private PrintWriter out;
     private BufferedReader in;
+    private int nextTag = 1;
+    private String welcome;
+    private boolean binary;
+    private DataInputStream frameIn;
+    private OutputStream frameOut;
+    private final WireCodec.Encoder encoder = new WireCodec.Encoder();
+    // Set once subscribed: a reader thread owns the socket and forwards non-event lines (text)
+    // or frames (binary) here.
+    private volatile BlockingQueue<Object> replies;
+    private static final String EOF = new String("EOF");
 
     public ServerConnection(String host, int port) {
         this.host = host;
@@ -19,10 +47,13 @@ public class ServerConnection {
         try {
             socket = new Socket(host, port);
             socket.setSoTimeout(5000);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            binary = false;
+            replies = null;
             // Read welcome
-            in.readLine();
+            welcome = in.readLine();
+            if (PREFER_BINARY) useBinary();
             return true;
         } catch (IOException e) {
             return false;
@@ -46,10 +77,235 @@ public class ServerConnection {
 
     public String readResponse() throws IOException {
         String line;
-        while ((line = in.readLine()) != null) {
+        while ((line = (String) next()) != null) {
             if ("PONG".equalsIgnoreCase(line.trim())) continue;
             return line;
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sends all commands back to back in a single write and waits for every reply, matching
+     * them by request tag so the server may answer in any order. The result holds the reply
+     * records of each command, in the order the commands were given; see {@link #command}.
+     * <p>
+     * Over frames each command is split into fields the way the server splits a text line.
+     */
+    public List<List<List<Object>>> pipeline(String... commands) throws IOException {
+        if (!binary) return pipelineLines(commands);
+        List<Object[]> requests = new ArrayList<>(commands.length);
+        for (String c : commands) requests.add(fields(c));
+        return pipelineFrames(requests);
+    }
+
+    /**
+     * Sends one command with each argument as its own field and returns its reply records, each
+     * {@code [kind, fields...]} with the tag stripped. Over frames the fields arrive as sent
+     * (integers as {@link Integer}) and arguments may contain {@code |}; in text mode arguments are
+     * joined with {@code |} and every field is a string.
+     */
+    public List<List<Object>> command(String cmd, Object... args) throws IOException {
+        if (!binary) {
+            StringBuilder sb = new StringBuilder(cmd);
+            for (int i = 0; i < args.length; i++) sb.append(i == 0 ? ' ' : '|').append(args[i]);
+            return pipelineLines(sb.toString()).get(0);
+        }
+        Object[] request = new Object[args.length + 1];
+        request[0] = cmd;
+        System.arraycopy(args, 0, request, 1, args.length);
+        return pipelineFrames(Collections.singletonList(request)).get(0);
+    }
+
+    private List<List<List<Object>>> pipelineLines(String... commands) throws IOException {
+        Map<String, Integer> pending = new HashMap<>();
+        List<List<List<Object>>> replies = new ArrayList<>();
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < commands.length; i++) {
+            String tag = Protocol.TAG_PREFIX + (nextTag++);
+            pending.put(tag, i);
+            replies.add(new ArrayList<>());
+            batch.append(tag).append(' ').append(commands[i]).append('\n');
+        }
+        out.print(batch);
+        out.flush();
+
+        while (!pending.isEmpty()) {
+            String line = (String) next();
+            if (line == null) throw new EOFException("Connection closed");
+            int sp = line.indexOf(' ');
+            if (sp < 0 || !line.startsWith(Protocol.TAG_PREFIX)) continue;
+            Integer idx = pending.get(line.substring(0, sp));
+            if (idx == null) continue;
+            String body = line.substring(sp + 1);
+            if (Protocol.RESP_DONE.equals(body)) pending.remove(line.substring(0, sp));
+            else replies.get(idx).add(record(body));
+        }
+        return replies;
+    }
+
+    private List<List<List<Object>>> pipelineFrames(List<Object[]> requests) throws IOException {
+        Map<Integer, Integer> pending = new HashMap<>();
+        List<List<List<Object>>> replies = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            int tag = nextTag++;
+            pending.put(tag, i);
+            replies.add(new ArrayList<>());
+            encoder.begin().putInt(tag);
+            for (Object f : requests.get(i)) encoder.put(f);
+            encoder.writeTo(frameOut);
+        }
+        frameOut.flush();
+
+        while (!pending.isEmpty()) {
+            @SuppressWarnings("unchecked")
+            List<Object> frame = (List<Object>) next();
+            if (frame == null) throw new EOFException("Connection closed");
+            if (frame.size() < 2) continue;
+            Integer idx = pending.get(frame.get(0));
+            if (idx == null) continue;
+            if (Protocol.RESP_DONE.equals(frame.get(1))) pending.remove(frame.get(0));
+            else replies.get(idx).add(frame.subList(1, frame.size()));
+        }
+        return replies;
+    }
+
+    /**
+     * {@code CMD a|b} as {@code [CMD, a, b]}; a command without a payload gets one empty
+     * argument, as the server's text parser gives it.
+     */
+    private static Object[] fields(String command) {
+        String c = command.trim();
+        int sp = c.indexOf(' ');
+        String[] args = (sp < 0 ? "" : c.substring(sp + 1)).split("\\|");
+        Object[] request = new Object[args.length + 1];
+        request[0] = sp < 0 ? c : c.substring(0, sp);
+        System.arraycopy(args, 0, request, 1, args.length);
+        return request;
+    }
+
+    /**
+     * A text reply line as the record a frame would carry: the kind, then the fields split on
+     * {@code |}, or on the separator the text protocol uses instead ({@code OK COUNT n},
+     * {@code EMP id:username}).
+     */
+    static List<Object> record(String line) {
+        int sp = line.indexOf(' ');
+        if (sp < 0) return Collections.singletonList(line);
+        String kind = line.substring(0, sp), rest = line.substring(sp + 1);
+        String[] fields;
+        if ("EMP".equals(kind)) fields = rest.split(":", 2);
+        else if ("OK".equals(kind) && rest.startsWith("COUNT ")) fields = rest.split(" ", 2);
+        else fields = rest.split("\\|", -1);
+        List<Object> rec = new ArrayList<>(fields.length + 1);
+        rec.add(kind);
+        Collections.addAll(rec, fields);
+        return rec;
+    }
+
+    /**
+     * The next line (text) or frame (binary) from the server, or null at end of stream.
+     */
+    private Object next() throws IOException {
+        BlockingQueue<Object> q = replies;
+        if (q == null) return binary ? WireCodec.readFrame(frameIn) : in.readLine();
+        Object item;
+        try {
+            item = q.poll(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (item == null) throw new java.net.SocketTimeoutException("Read timed out");
+        if (item == EOF) {
+            q.add(EOF);
+            return null;
+        }
+        return item;
+    }
+
+    // --- Pushed events ---
+
+    /**
+     * Sends {@code SUBSCRIBE} and, if accepted, starts a reader thread that passes every event
+     * ({@code [type, fields...]}) to {@code listener} as it arrives,
+     * while replies keep flowing to the request methods. The listener runs on the reader thread,
+     * so it must hand off work rather than block. Lasts until the next connect.
+     */
+    public boolean subscribe(Consumer<List<Object>> listener) throws IOException {
+        if (replies != null) return true;
+        List<List<Object>> r = command(Protocol.CMD_SUBSCRIBE);
+        if (r.isEmpty() || !"OK".equals(r.get(0).get(0))) return false;
+
+        BlockingQueue<Object> q = new LinkedBlockingQueue<>();
+        BufferedReader reader = in;
+        DataInputStream frames = frameIn;
+        boolean framed = binary;
+        Socket s = socket;
+        s.setSoTimeout(0); // idle waits are normal now; next() applies its own timeout
+        Thread t = new Thread(() -> {
+            String eventPrefix = Protocol.RESP_EVENT + " ";
+            try {
+                while (true) {
+                    List<Object> event = null;
+                    Object item;
+                    if (framed) {
+                        List<Object> frame = WireCodec.readFrame(frames);
+                        if (frame == null) break;
+                        // Events are untagged frames [0, EVENT, type, fields...].
+                        if (frame.size() > 2 && Protocol.RESP_EVENT.equals(frame.get(1))) {
+                            event = frame.subList(2, frame.size());
+                        }
+                        item = frame;
+                    } else {
+                        String line = reader.readLine();
+                        if (line == null) break;
+                        if (line.startsWith(eventPrefix)) {
+                            event = Arrays.asList((Object[]) line.substring(eventPrefix.length()).split("\\|", -1));
+                        }
+                        item = line;
+                    }
+                    if (event == null) {
+                        q.add(item);
+                        continue;
+                    }
+                    try {
+                        listener.accept(event);
+                    } catch (RuntimeException e) {
+                        System.err.println("Event listener failed: " + e);
+                    }
+                }
+            } catch (IOException ignored) {
+            } finally {
+                q.add(EOF);
+            }
+        }, "server-events");
+        t.setDaemon(true);
+        replies = q;
+        t.start();
+        return true;
+    }
+
+    // --- Binary framing ---
+
+    /**
+     * Switches this connection to {@link WireCodec} frames if the server offers them; called by
+     * {@link #connect()} unless {@code app.client.binary} is false. Afterwards {@link #send} and
+     * {@link #readResponse} no longer apply.
+     */
+    private boolean useBinary() throws IOException {
+        if (welcome == null || !welcome.contains(Protocol.PROTO_BINARY)) return false;
+        send(Protocol.CMD_PROTO + " " + Protocol.PROTO_BINARY);
+        String r = readResponse();
+        if (!("OK " + Protocol.PROTO_BINARY).equals(r)) return false;
+        // The server sends nothing more until our first frame, so the line reader holds no
+        // buffered frame bytes.
+        frameIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        frameOut = new BufferedOutputStream(socket.getOutputStream());
+        binary = true;
+        return true;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+}
@@ -0,0 +1,138 @@
+package app.client.ui;
+
+import app.client.AsyncServerConnection;
+import app.client.Replies;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * List model over a keyset-paged server listing ({@code <CMD> afterId|pageSize}, answered with
+ * rows, an optional {@code NEXT <id>} and {@code END}). Pages are requested only when the list
+ * asks for one of their rows, and at most {@code maxPages} are kept; evicted pages are fetched
+ * again from the page boundary remembered for them. A row reads as its fields joined with
+ * {@code |}, or "Loading..." until it has loaded; {@link #rowAt} gives the fields themselves.
+ * <p>
+ * The list grows as the server reports more rows, ending in one placeholder row while more may
+ * follow. Give the {@link JList} a fixed cell height, otherwise it asks for every row to measure
+ * them. Must only be used on the EDT.
+ */
+public class PagedListModel extends AbstractListModel<String> {
+    public static final String LOADING = "Loading...";
+
+    private final AsyncServerConnection server;
+    private final String command;
+    private final String rowKind;
+    private final int pageSize;
+    private final Executor edt = SwingUtilities::invokeLater;
+
+    // afterIds.get(p) is the id page p starts after; known for every page reached so far
+    private final List<Integer> afterIds = new ArrayList<>();
+    private final LinkedHashMap<Integer, List<List<Object>>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    private int fullPages = 0;   // pages known to hold pageSize rows with more after them
+    private int tailRows = -1;   // rows of the last page once it has loaded, -1 before
+
+    public PagedListModel(AsyncServerConnection server, String command, String rowKind, int pageSize, int maxPages) {
+        this.server = server;
+        this.command = command;
+        this.rowKind = rowKind;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, List<List<Object>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<List<Object>>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        afterIds.add(0);
+    }
+
+    @Override
+    public int getSize() {
+        return fullPages * pageSize + (tailRows >= 0 ? tailRows : 1);
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        List<Object> row = rowAt(index);
+        if (row == null) return LOADING;
+        StringBuilder sb = new StringBuilder();
+        for (Object field : row) {
+            if (sb.length() > 0) sb.append('|');
+            sb.append(field);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The fields of the row at {@code index} (without the row kind), or null while it is loading.
+     */
+    public List<Object> rowAt(int index) {
+        int page = index / pageSize;
+        List<List<Object>> rows = pages.get(page);
+        if (rows == null) {
+            load(page);
+            return null;
+        }
+        int i = index % pageSize;
+        return i < rows.size() ? rows.get(i) : null;
+    }
+
+    /**
+     * True when the row has been loaded, i.e. {@link #getElementAt} returned real data for it.
+     */
+    public boolean isLoaded(int index) {
+        List<List<Object>> rows = pages.get(index / pageSize);
+        return rows != null && index % pageSize < rows.size();
+    }
+
+    /**
+     * Drops the page holding {@code index} so it is read again, e.g. after one of its rows changed.
+     */
+    public void reload(int index) {
+        int page = index / pageSize;
+        if (pages.remove(page) == null) return;
+        int first = page * pageSize;
+        fireContentsChanged(this, first, Math.min(first + pageSize, getSize()) - 1);
+    }
+
+    private void load(int page) {
+        if (page >= afterIds.size() || !loading.add(page)) return;
+        server.request(command + " " + afterIds.get(page) + "|" + pageSize).whenCompleteAsync((reply, err) -> {
+            loading.remove(page);
+            if (err == null) loaded(page, reply);
+        }, edt);
+    }
+
+    private void loaded(int page, List<List<Object>> reply) {
+        List<List<Object>> rows = new ArrayList<>(pageSize);
+        Integer next = null;
+        for (List<Object> rec : reply) {
+            if (Replies.is(rec, "ERROR")) return;
+            if (Replies.is(rec, rowKind)) rows.add(rec.subList(1, rec.size()));
+            else if (Replies.is(rec, "NEXT")) next = Replies.num(rec, 1);
+        }
+        pages.put(page, rows);
+
+        int oldSize = getSize();
+        if (page == fullPages) {
+            // The last known page: now we learn whether the list goes on.
+            if (next != null) {
+                fullPages++;
+                afterIds.add(next);
+            } else tailRows = rows.size();
+        }
+        int newSize = getSize();
+        int first = page * pageSize;
+        if (newSize > oldSize) fireIntervalAdded(this, oldSize, newSize - 1);
+        else if (newSize < oldSize) fireIntervalRemoved(this, newSize, oldSize - 1);
+        int last = Math.min(first + pageSize, Math.min(oldSize, newSize)) - 1;
+        if (last >= first) fireContentsChanged(this, first, last);
+    }
+}
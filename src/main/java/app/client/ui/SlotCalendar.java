@@ -0,0 +1,283 @@
+package app.client.ui;
+
+import app.client.DPIUtil;
+import app.common.Protocol;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Booking calendar drawn as one component: a row per day, a column per
+ * {@link Protocol#SLOT_MINUTES}-minute slot of the working day. Only the rows inside the clip
+ * are painted and clicks are mapped to cells arithmetically, so a range of many weeks costs no
+ * more components than a single day. Put it in a {@link JScrollPane}; {@link #createHeader()}
+ * gives the matching time header for {@link JScrollPane#setColumnHeaderView}.
+ * <p>
+ * A slot is selectable unless availability is known for its day and marks it taken. Only one
+ * slot is selected at a time.
+ */
+public class SlotCalendar extends JComponent implements Scrollable {
+    private static final Color FREE = Color.WHITE;
+    private static final Color TAKEN = new Color(225, 225, 230);
+    private static final Color HOVER = new Color(210, 230, 250);
+    private static final Color SELECTED = new Color(40, 167, 69);
+    private static final Color GRID = new Color(200, 200, 200);
+    private static final Color WEEKEND = new Color(245, 245, 250);
+    private static final DateTimeFormatter DAY_FMT = DateTimeFormatter.ofPattern("EEE yyyy-MM-dd");
+
+    private final int labelWidth = DPIUtil.scale(120);
+    private final int cellWidth = DPIUtil.scale(44);
+    private final int rowHeight = DPIUtil.scale(28);
+
+    private LocalDate from = LocalDate.now();
+    private int days = 7;
+    private final Map<LocalDate, Integer> freeMasks = new HashMap<>();
+
+    private LocalDate selectedDate;
+    private int selectedSlot = -1;
+    private int hoverRow = -1, hoverSlot = -1;
+
+    public SlotCalendar() {
+        setOpaque(true);
+        setBackground(FREE);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                int row = rowAt(e.getY()), slot = slotAt(e.getX());
+                if (row == hoverRow && slot == hoverSlot) return;
+                repaintCell(hoverRow, hoverSlot);
+                hoverRow = row;
+                hoverSlot = slot;
+                repaintCell(hoverRow, hoverSlot);
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                repaintCell(hoverRow, hoverSlot);
+                hoverRow = hoverSlot = -1;
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = rowAt(e.getY()), slot = slotAt(e.getX());
+                if (row < 0 || slot < 0) return;
+                LocalDate d = from.plusDays(row);
+                if (!isOpen(d, slot)) return;
+                select(d, slot);
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    /**
+     * Shows {@code days} days starting at {@code from}. Availability and selection are cleared.
+     */
+    public void setRange(LocalDate from, int days) {
+        this.from = from;
+        this.days = days;
+        freeMasks.clear();
+        selectedDate = null;
+        selectedSlot = -1;
+        revalidate();
+        repaint();
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return from.plusDays(days - 1);
+    }
+
+    /**
+     * Availability per day as sent by FREE_SLOTS: bit i set means slot i is free. Days missing
+     * from the map are treated as unknown, i.e. selectable. A selected slot that turns out to be
+     * taken is deselected.
+     */
+    public void setFreeMasks(Map<LocalDate, Integer> masks) {
+        freeMasks.clear();
+        freeMasks.putAll(masks);
+        if (selectedDate != null && !isOpen(selectedDate, selectedSlot)) {
+            selectedDate = null;
+            selectedSlot = -1;
+            firePropertyChange("selection", true, false);
+        }
+        repaint();
+    }
+
+    public LocalDate getSelectedDate() {
+        return selectedDate;
+    }
+
+    /** Start time of the selected slot, or null. */
+    public LocalTime getSelectedStart() {
+        return selectedDate == null ? null : slotStart(selectedSlot);
+    }
+
+    public void clearSelection() {
+        if (selectedDate == null) return;
+        repaintCell(rowOf(selectedDate), selectedSlot);
+        selectedDate = null;
+        selectedSlot = -1;
+        firePropertyChange("selection", true, false);
+    }
+
+    private void select(LocalDate d, int slot) {
+        if (selectedDate != null) repaintCell(rowOf(selectedDate), selectedSlot);
+        selectedDate = d;
+        selectedSlot = slot;
+        repaintCell(rowOf(d), slot);
+        firePropertyChange("selection", false, true);
+    }
+
+    private boolean isOpen(LocalDate d, int slot) {
+        if (slot < 0 || isLunch(slot)) return false;
+        Integer mask = freeMasks.get(d);
+        return mask == null || (mask & (1 << slot)) != 0;
+    }
+
+    private static boolean isLunch(int slot) {
+        int minute = Protocol.DAY_START_MINUTE + slot * Protocol.SLOT_MINUTES;
+        return minute >= 12 * 60 && minute < 13 * 60;
+    }
+
+    private static LocalTime slotStart(int slot) {
+        return LocalTime.ofSecondOfDay((Protocol.DAY_START_MINUTE + (long) slot * Protocol.SLOT_MINUTES) * 60);
+    }
+
+    // --- geometry ---
+
+    private int rowAt(int y) {
+        int row = y / rowHeight;
+        return y < 0 || row >= days ? -1 : row;
+    }
+
+    private int slotAt(int x) {
+        if (x < labelWidth) return -1;
+        int slot = (x - labelWidth) / cellWidth;
+        return slot >= Protocol.SLOTS_PER_DAY ? -1 : slot;
+    }
+
+    private int rowOf(LocalDate d) {
+        return (int) (d.toEpochDay() - from.toEpochDay());
+    }
+
+    private void repaintCell(int row, int slot) {
+        if (row >= 0 && slot >= 0) repaint(labelWidth + slot * cellWidth, row * rowHeight, cellWidth, rowHeight);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(labelWidth + Protocol.SLOTS_PER_DAY * cellWidth, days * rowHeight);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g0) {
+        Graphics2D g = (Graphics2D) g0.create();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            int firstRow = Math.max(0, clip.y / rowHeight);
+            int lastRow = Math.min(days - 1, (clip.y + clip.height) / rowHeight);
+            FontMetrics fm = g.getFontMetrics();
+            int textY = (rowHeight + fm.getAscent() - fm.getDescent()) / 2;
+            for (int row = firstRow; row <= lastRow; row++) {
+                LocalDate d = from.plusDays(row);
+                int y = row * rowHeight;
+                DayOfWeek dow = d.getDayOfWeek();
+                boolean weekend = dow == DayOfWeek.SATURDAY || dow == DayOfWeek.SUNDAY;
+                g.setColor(weekend ? WEEKEND : getBackground());
+                g.fillRect(0, y, labelWidth, rowHeight);
+                g.setColor(Color.DARK_GRAY);
+                g.drawString(d.format(DAY_FMT), DPIUtil.scale(6), y + textY);
+
+                for (int slot = 0; slot < Protocol.SLOTS_PER_DAY; slot++) {
+                    int x = labelWidth + slot * cellWidth;
+                    boolean selected = d.equals(selectedDate) && slot == selectedSlot;
+                    Color c = selected ? SELECTED
+                            : !isOpen(d, slot) ? TAKEN
+                            : row == hoverRow && slot == hoverSlot ? HOVER : FREE;
+                    g.setColor(c);
+                    g.fillRect(x, y, cellWidth, rowHeight);
+                    g.setColor(GRID);
+                    g.drawRect(x, y, cellWidth - 1, rowHeight - 1);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Slot start times, aligned with the calendar's columns.
+     */
+    public JComponent createHeader() {
+        return new JComponent() {
+            {
+                setOpaque(true);
+            }
+
+            @Override
+            public Dimension getPreferredSize() {
+                return new Dimension(SlotCalendar.this.getPreferredSize().width, DPIUtil.scale(24));
+            }
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                g.setColor(new Color(240, 240, 245));
+                g.fillRect(0, 0, getWidth(), getHeight());
+                g.setColor(Color.DARK_GRAY);
+                FontMetrics fm = g.getFontMetrics();
+                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
+                for (int slot = 0; slot < Protocol.SLOTS_PER_DAY; slot++) {
+                    String t = slotStart(slot).toString();
+                    int x = labelWidth + slot * cellWidth + (cellWidth - fm.stringWidth(t)) / 2;
+                    g.drawString(t, x, y);
+                }
+            }
+        };
+    }
+
+    // --- Scrollable: whole rows per click, whole screens per page ---
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(getPreferredSize().width, Math.min(days, 14) * rowHeight);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? rowHeight : cellWidth;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL
+                ? Math.max(rowHeight, visible.height / rowHeight * rowHeight)
+                : visible.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -1,16 +1,57 @@
 package app.common;
 
 public class Protocol {
+    // "LOGIN user|password" -> "OK id|username|role|token"; "RESUME <token>" -> "OK id|username|role"
     public static final String CMD_LOGIN = "LOGIN";
+    public static final String CMD_RESUME = "RESUME";
     public static final String CMD_REGISTER = "REGISTER";
     public static final String CMD_BOOK = "BOOK";
     public static final String CMD_CONFIRM = "CONFIRM";
     public static final String CMD_LIST_EMPS = "LIST_EMPLOYEES";
+
+    // Push: after "SUBSCRIBE" the server may send, between replies, untagged lines
+    // "EVENT APPT_CREATED|id|employeeId|userId|date|start|end|status" and "EVENT APPT_STATUS|id|status"
+    public static final String CMD_SUBSCRIBE = "SUBSCRIBE";
+    public static final String RESP_EVENT = "EVENT";
+    public static final String EVENT_APPT_CREATED = "APPT_CREATED";
+    public static final String EVENT_APPT_STATUS = "APPT_STATUS";
+    // "LIST_EMPLOYEES <knownVersion>" -> "NOT_MODIFIED <v>", "END" while the list is unchanged
+    public static final String RESP_NOT_MODIFIED = "NOT_MODIFIED";
     public static final String CMD_MY_APPTS = "MY_APPTS";
+    public static final String CMD_MY_APPTS_PAGE = "MY_APPTS_PAGE";
+    // Delta sync: "MY_APPTS_SINCE <seq>" -> "OK COUNT n", n x "APPT" rows changed after seq, "SEQ <latest>", "END";
+    // start from 0 and pass the last SEQ back next time
+    public static final String CMD_MY_APPTS_SINCE = "MY_APPTS_SINCE";
+
+    // Availability: "FREE_SLOTS empId|fromDate|toDate" -> "OK COUNT n", n x "FREE date|hexMask", "END".
+    // Bit i of the mask is set when the half hour starting at 09:00 + i*30min is bookable.
+    public static final String CMD_FREE_SLOTS = "FREE_SLOTS";
+    public static final int SLOT_MINUTES = 30;
+    public static final int DAY_START_MINUTE = 9 * 60;
+    public static final int SLOTS_PER_DAY = 18;
+    public static final int MAX_FREE_SLOT_DAYS = 62;
+
+    // Paged listings: "<CMD> [afterId][|pageSize]" -> "OK PAGE", rows, optional "NEXT <lastId>", "END"
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Pipelining: "#<id> CMD payload"; each reply line carries "#<id> " and ends with "#<id> DONE"
+    public static final String TAG_PREFIX = "#";
+    public static final String RESP_DONE = "DONE";
+
+    // Framing negotiation: the server lists "BINARY" in its WELCOME line, the client sends
+    // "PROTO BINARY", waits for "OK BINARY", and from then on both sides exchange WireCodec frames.
+    public static final String CMD_PROTO = "PROTO";
+    public static final String PROTO_BINARY = "BINARY";
 
     // Admin
     public static final String CMD_ADMIN_LIST = "ADMIN_LIST_USERS";
+    public static final String CMD_ADMIN_LIST_PAGE = "ADMIN_LIST_USERS_PAGE";
     public static final String CMD_ADMIN_ADD = "ADMIN_ADD_USER";
     public static final String CMD_ADMIN_UPDATE = "ADMIN_UPDATE_USER";
     public static final String CMD_ADMIN_DELETE = "ADMIN_DELETE_USER";
+    // Per-command counters and latency percentiles: "OK COUNT n", n STAT rows, "END"
+    public static final String CMD_STATS = "STATS";
+    // "SQL_STATS [n]": the n mapped statements with the most total time, as SQLSTAT rows
+    public static final String CMD_SQL_STATS = "SQL_STATS";
 }
@@ -0,0 +1,168 @@
+package app.common;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary framing used once a connection has negotiated {@code PROTO BINARY}.
+ * <p>
+ * A frame is a 4-byte big-endian payload length followed by typed fields. Each field is a type
+ * byte and its value: {@link #T_INT} is 4 bytes, {@link #T_STRING} is a 4-byte length plus UTF-8
+ * bytes. Requests are {@code [tag, command, args...]}, replies are {@code [tag, kind, fields...]},
+ * where tag is 0 for untagged traffic.
+ */
+public final class WireCodec {
+    public static final byte T_NULL = 0;
+    public static final byte T_INT = 1;
+    public static final byte T_STRING = 2;
+
+    public static final int MAX_FRAME = 1 << 20;
+
+    private WireCodec() {
+    }
+
+    /**
+     * Reads one frame, or returns null when the stream ends cleanly between frames.
+     */
+    public static List<Object> readFrame(DataInputStream in) throws IOException {
+        int b0 = in.read();
+        if (b0 < 0) return null;
+        int len = (b0 << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+        if (len < 0 || len > MAX_FRAME) throw new IOException("Bad frame length " + len);
+        byte[] buf = new byte[len];
+        in.readFully(buf);
+        return decode(buf, 0, len);
+    }
+
+    /**
+     * Returns the payload length of the frame starting at {@code off}, or -1 if fewer than four
+     * bytes are available.
+     */
+    public static int peekLength(byte[] buf, int off, int available) throws IOException {
+        if (available < 4) return -1;
+        int len = ((buf[off] & 0xff) << 24) | ((buf[off + 1] & 0xff) << 16)
+                | ((buf[off + 2] & 0xff) << 8) | (buf[off + 3] & 0xff);
+        if (len < 0 || len > MAX_FRAME) throw new IOException("Bad frame length " + len);
+        return len;
+    }
+
+    /**
+     * Decodes the fields of one frame payload (without its length prefix).
+     */
+    public static List<Object> decode(byte[] buf, int off, int len) throws IOException {
+        List<Object> fields = new ArrayList<>(8);
+        int pos = off, end = off + len;
+        while (pos < end) {
+            byte type = buf[pos++];
+            switch (type) {
+                case T_NULL:
+                    fields.add(null);
+                    break;
+                case T_INT:
+                    if (end - pos < 4) throw new EOFException("Truncated int");
+                    fields.add(readInt(buf, pos));
+                    pos += 4;
+                    break;
+                case T_STRING:
+                    if (end - pos < 4) throw new EOFException("Truncated string");
+                    int n = readInt(buf, pos);
+                    pos += 4;
+                    if (n < 0 || n > end - pos) throw new EOFException("Truncated string");
+                    fields.add(new String(buf, pos, n, StandardCharsets.UTF_8));
+                    pos += n;
+                    break;
+                default:
+                    throw new IOException("Unknown field type " + type);
+            }
+        }
+        return fields;
+    }
+
+    private static int readInt(byte[] b, int p) {
+        return ((b[p] & 0xff) << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8) | (b[p + 3] & 0xff);
+    }
+
+    /**
+     * Reusable frame builder; one per connection, not thread-safe.
+     */
+    public static final class Encoder {
+        private byte[] buf = new byte[256];
+        private int len;
+
+        public Encoder begin() {
+            len = 4;
+            return this;
+        }
+
+        public Encoder putInt(int v) {
+            ensure(5);
+            buf[len++] = T_INT;
+            writeInt(len, v);
+            len += 4;
+            return this;
+        }
+
+        public Encoder putString(String s) {
+            if (s == null) return putNull();
+            int n = s.length();
+            ensure(5 + n);
+            int start = len + 5;
+            int i = 0;
+            // ASCII fast path avoids an intermediate byte[] for the common case
+            while (i < n) {
+                char c = s.charAt(i);
+                if (c >= 0x80) break;
+                buf[start + i++] = (byte) c;
+            }
+            if (i < n) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                ensure(5 + bytes.length);
+                System.arraycopy(bytes, 0, buf, len + 5, bytes.length);
+                n = bytes.length;
+            }
+            buf[len] = T_STRING;
+            writeInt(len + 1, n);
+            len += 5 + n;
+            return this;
+        }
+
+        public Encoder putNull() {
+            ensure(1);
+            buf[len++] = T_NULL;
+            return this;
+        }
+
+        /**
+         * Integers travel as {@link #T_INT}, everything else as its string form.
+         */
+        public Encoder put(Object o) {
+            if (o == null) return putNull();
+            if (o instanceof Integer) return putInt((Integer) o);
+            return putString(String.valueOf(o));
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            writeInt(0, len - 4);
+            out.write(buf, 0, len);
+        }
+
+        private void ensure(int extra) {
+            if (len + extra <= buf.length) return;
+            byte[] grown = new byte[Math.max(buf.length * 2, len + extra)];
+            System.arraycopy(buf, 0, grown, 0, len);
+            buf = grown;
+        }
+
+        private void writeInt(int p, int v) {
+            buf[p] = (byte) (v >>> 24);
+            buf[p + 1] = (byte) (v >>> 16);
+            buf[p + 2] = (byte) (v >>> 8);
+            buf[p + 3] = (byte) v;
+        }
+    }
+}
@@ -8,6 +8,8 @@ public class Appointment {
     private String startTime;   // HH:mm
     private String endTime;     // HH:mm
     private String status;
+    private String otherName;   // counterpart's username, filled by the *WithNames queries
+    private Long changeSeq;     // filled by the changedFor* queries
 
     public Appointment() {
     }
@@ -67,4 +69,20 @@ public class Appointment {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public String getOtherName() {
+        return otherName;
+    }
+
+    public void setOtherName(String otherName) {
+        this.otherName = otherName;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
 }
@@ -2,189 +2,639 @@ package app.server;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import app.common.Protocol;
+import app.common.WireCodec;
 import app.server.mappers.AppointmentMapper;
 import app.common.models.Appointment;
 import app.common.models.User;
 import app.server.mappers.UserMapper;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.SqlSession;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+public class ClientHandler implements Runnable, EventBus.Subscriber {
+    private static final String[] NO_ARGS = new String[0];
+    // Pushed events waiting for a slow client beyond this are dropped.
+    private static final int MAX_PENDING_EVENTS = 256;
+    private static final AtomicInteger PUSHER_SEQ = new AtomicInteger();
 
-public class ClientHandler implements Runnable {
     private final Socket socket;
     private BufferedReader in;
+    private OutputStream rawOut;
     private PrintWriter out;
+    private TaggedWriter tagger;
+    private final WireCodec.Encoder encoder = new WireCodec.Encoder();
+    private volatile boolean binary = false;
+    private int frameTag = 0;
     private Integer loggedUserId = null;
     private String loggedUserRole = null;
 
+    // Events from the EventBus not yet written. Replies and events are written under writeLock
+    // so an event never lands inside a reply.
+    private final Queue<Object[]> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    // Blocking mode only: this connection's event writer, started by the first event so that
+    // connections which never subscribe do not pay for a thread.
+    private Thread pusher;
+    private volatile boolean closed;
+    private final Object writeLock = new Object();
+    private volatile Runnable wakeup = this::schedulePush;
+    private Integer subscribedUserId = null;
+
+    // Statistics of the command being executed, see dispatch().
+    private String statsName;
+    private long replyNanos;
+    private boolean replyFailed;
+
     public ClientHandler(Socket socket) {
         this.socket = socket;
     }
 
+    /**
+     * Used by the NIO engine: the connection is owned by {@link NioServer}, which frames
+     * incoming data and feeds it to {@link #handleLine(String)} or {@link #handleFrame(List)}.
+     */
+    ClientHandler(OutputStream out) {
+        this.socket = null;
+        attach(out);
+    }
+
+    private void attach(OutputStream os) {
+        rawOut = os;
+        tagger = new TaggedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+        out = new PrintWriter(tagger, false);
+    }
+
     @Override
     public void run() {
         try (Socket s = socket) {
-            in = new BufferedReader(new InputStreamReader(s.getInputStream()));
-            out = new PrintWriter(s.getOutputStream(), true);
+            in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            attach(new BufferedOutputStream(s.getOutputStream()));
 
-            out.println("WELCOME AppointmentSystem");
+            synchronized (writeLock) {
+                greet();
+                flush();
+            }
 
             String line;
-            while ((line = in.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                if ("PING".equalsIgnoreCase(line)) continue;
-
-                String[] parts = line.split(" ", 2);
-                String cmd = parts[0].toUpperCase();
-                String payload = parts.length > 1 ? parts[1] : "";
-
-                switch (cmd) {
-                    case Protocol.CMD_REGISTER:
-                        handleRegister(payload);
-                        break;
-                    case Protocol.CMD_LOGIN:
-                        handleLogin(payload);
-                        break;
-                    case Protocol.CMD_LIST_EMPS:
-                        handleListEmployees();
-                        break;
-                    case Protocol.CMD_BOOK:
-                        handleBook(payload);
-                        break;
-                    case Protocol.CMD_MY_APPTS:
-                        handleMyAppts();
-                        break;
-                    case Protocol.CMD_CONFIRM:
-                        handleConfirm(payload);
-                        break;
-                    case "MY_INFO":
-                        handleMyInfo();
-                        break;
-                    // --- Admin Commands ---
-                    case Protocol.CMD_ADMIN_LIST:
-                        handleAdminListUsers();
-                        break;
-                    case Protocol.CMD_ADMIN_ADD:
-                        handleAdminAddUser(payload);
-                        break;
-                    case Protocol.CMD_ADMIN_UPDATE:
-                        handleAdminUpdateUser(payload);
-                        break;
-                    case Protocol.CMD_ADMIN_DELETE:
-                        handleAdminDeleteUser(payload);
-                        break;
+            while (!binary && (line = in.readLine()) != null) {
+                boolean keepOpen;
+                synchronized (writeLock) {
+                    keepOpen = handleLine(line);
+                    // Pipelined commands already buffered are answered in one write.
+                    if (!keepOpen || !in.ready()) flush();
+                }
+                if (!keepOpen) return;
+            }
+            if (!binary) return;
 
-                    case "QUIT":
-                        out.println("OK BYE");
-                        return;
-                    default:
-                        out.println("ERROR UnknownCommand");
+            // The client waits for "OK BINARY" before sending frames, so nothing is left in the reader.
+            DataInputStream din = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            List<Object> frame;
+            while ((frame = WireCodec.readFrame(din)) != null) {
+                boolean keepOpen;
+                synchronized (writeLock) {
+                    keepOpen = handleFrame(frame);
+                    if (!keepOpen || din.available() == 0) flush();
                 }
+                if (!keepOpen) return;
             }
         } catch (IOException e) {
             System.err.println("Client connection closed: " + e.getMessage());
+        } finally {
+            detach();
         }
     }
 
-    private void handleRegister(String payload) {
-        try (SqlSession session = MyBatisUtil.openSession()) {
-            UserMapper um = session.getMapper(UserMapper.class);
-            String[] p = payload.split("\\|");
+    /**
+     * Releases what the connection holds outside itself; called once it has closed.
+     */
+    void detach() {
+        unsubscribe();
+        closed = true;
+        Thread t;
+        synchronized (this) {
+            t = pusher;
+        }
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    // --- PUSHED EVENTS ---
+
+    /**
+     * Called by the {@link EventBus} on the publishing thread: only queues the event and wakes
+     * the connection.
+     */
+    @Override
+    public void offer(Object[] event) {
+        if (pendingEvents.incrementAndGet() > MAX_PENDING_EVENTS) {
+            pendingEvents.decrementAndGet();
+            return;
+        }
+        events.add(event);
+        wakeup.run();
+    }
+
+    /**
+     * Used by the NIO engine, which writes events from its own worker turn instead.
+     */
+    void setWakeup(Runnable wakeup) {
+        this.wakeup = wakeup;
+    }
+
+    boolean hasEvents() {
+        return !events.isEmpty();
+    }
+
+    /**
+     * Writes queued events as {@code EVENT type|fields...}. Only call between commands, with the
+     * connection's output to yourself.
+     */
+    void writeEvents() {
+        Object[] e;
+        while ((e = events.poll()) != null) {
+            pendingEvents.decrementAndGet();
+            reply(Protocol.RESP_EVENT, e);
+        }
+    }
+
+    private synchronized void schedulePush() {
+        if (closed) return;
+        if (pusher == null) {
+            pusher = new Thread(this::pushLoop, "event-push-" + PUSHER_SEQ.incrementAndGet());
+            pusher.setDaemon(true);
+            pusher.start();
+        }
+        LockSupport.unpark(pusher);
+    }
+
+    // A client that stops reading blocks only this thread, and its own command thread.
+    private void pushLoop() {
+        while (!closed) {
+            if (events.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            synchronized (writeLock) {
+                writeEvents();
+                flush();
+            }
+        }
+    }
+
+    private synchronized void unsubscribe() {
+        if (subscribedUserId == null) return;
+        EventBus.shared().unsubscribe(subscribedUserId, this);
+        subscribedUserId = null;
+    }
+
+    void greet() {
+        out.println("WELCOME AppointmentSystem " + Protocol.PROTO_BINARY);
+    }
+
+    boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Answers a request that could not be admitted for execution, keeping its request tag.
+     */
+    void rejectBusy(Object request) {
+        if (request instanceof List) {
+            List<?> f = (List<?>) request;
+            frameTag = !f.isEmpty() && f.get(0) instanceof Integer ? (Integer) f.get(0) : 0;
+            reply("ERROR", "ServerBusy");
+            if (frameTag != 0) reply(Protocol.RESP_DONE);
+            frameTag = 0;
+            return;
+        }
+        String line = ((String) request).trim();
+        if (line.startsWith(Protocol.TAG_PREFIX)) {
+            String tag = line.split(" ", 2)[0];
+            out.println(tag + " ERROR ServerBusy");
+            out.println(tag + " " + Protocol.RESP_DONE);
+        } else out.println("ERROR ServerBusy");
+    }
+
+    void flush() {
+        out.flush();
+    }
+
+    /**
+     * Executes one protocol line. Returns false once the client has asked to quit.
+     * A line may carry a request tag ({@code #<id> CMD payload}); every reply line is then
+     * prefixed with the same tag and the reply is closed by {@code #<id> DONE}.
+     */
+    boolean handleLine(String line) {
+        line = line.trim();
+        if (line.isEmpty()) return true;
+
+        String tag = null;
+        if (line.startsWith(Protocol.TAG_PREFIX)) {
+            String[] tp = line.split(" ", 2);
+            tag = tp[0];
+            line = tp.length > 1 ? tp[1].trim() : "";
+            tagger.setPrefix(tag + " ");
+        }
+        try {
+            if (line.isEmpty()) return true;
+            String[] parts = line.split(" ", 2);
+            String payload = parts.length > 1 ? parts[1] : "";
+            return dispatch(parts[0].toUpperCase(), payload.split("\\|"));
+        } finally {
+            if (tag != null) {
+                out.println(Protocol.RESP_DONE);
+                tagger.setPrefix(null);
+            }
+        }
+    }
+
+    /**
+     * Executes one binary request frame {@code [tag, command, args...]}. Arguments arrive as
+     * separate fields, so they may contain {@code |} or spaces.
+     */
+    boolean handleFrame(List<Object> frame) {
+        if (frame.size() < 2) {
+            reply("ERROR", "BadPayload");
+            return true;
+        }
+        frameTag = frame.get(0) instanceof Integer ? (Integer) frame.get(0) : 0;
+        try {
+            String[] args = frame.size() > 2 ? new String[frame.size() - 2] : NO_ARGS;
+            for (int i = 0; i < args.length; i++) {
+                Object v = frame.get(i + 2);
+                args[i] = v == null ? "" : v.toString();
+            }
+            return dispatch(String.valueOf(frame.get(1)).toUpperCase(), args);
+        } finally {
+            if (frameTag != 0) reply(Protocol.RESP_DONE);
+            frameTag = 0;
+        }
+    }
+
+    /**
+     * Executes one command and records its latency under its name in {@link CommandStats} and,
+     * when recording, as a {@link JfrEvents.Command}.
+     */
+    private boolean dispatch(String cmd, String[] p) {
+        statsName = cmd;
+        replyNanos = 0;
+        replyFailed = false;
+        Object event = JfrEvents.beginCommand();
+        CommandStats stats = CommandStats.shared();
+        CommandStats.Sample sample = stats.begin();
+        try {
+            return execute(cmd, p);
+        } finally {
+            stats.end(statsName, sample, replyNanos, replyFailed);
+            JfrEvents.endCommand(event, statsName, loggedUserId == null ? 0 : loggedUserId, replyFailed,
+                    sample.dbNanos(), replyNanos);
+        }
+    }
+
+    private boolean execute(String cmd, String[] p) {
+        switch (cmd) {
+            case "PING":
+                break;
+            case Protocol.CMD_PROTO:
+                handleProto(p);
+                break;
+            case Protocol.CMD_REGISTER:
+                handleRegister(p);
+                break;
+            case Protocol.CMD_LOGIN:
+                handleLogin(p);
+                break;
+            case Protocol.CMD_RESUME:
+                handleResume(p);
+                break;
+            case Protocol.CMD_SUBSCRIBE:
+                handleSubscribe();
+                break;
+            case Protocol.CMD_LIST_EMPS:
+                handleListEmployees(p);
+                break;
+            case Protocol.CMD_BOOK:
+                handleBook(p);
+                break;
+            case Protocol.CMD_MY_APPTS:
+                handleMyAppts();
+                break;
+            case Protocol.CMD_MY_APPTS_PAGE:
+                handleMyApptsPage(p);
+                break;
+            case Protocol.CMD_MY_APPTS_SINCE:
+                handleMyApptsSince(p);
+                break;
+            case Protocol.CMD_FREE_SLOTS:
+                handleFreeSlots(p);
+                break;
+            case Protocol.CMD_CONFIRM:
+                handleConfirm(p);
+                break;
+            case "MY_INFO":
+                handleMyInfo();
+                break;
+            // --- Admin Commands ---
+            case Protocol.CMD_ADMIN_LIST:
+                handleAdminListUsers();
+                break;
+            case Protocol.CMD_ADMIN_LIST_PAGE:
+                handleAdminListUsersPage(p);
+                break;
+            case Protocol.CMD_ADMIN_ADD:
+                handleAdminAddUser(p);
+                break;
+            case Protocol.CMD_ADMIN_UPDATE:
+                handleAdminUpdateUser(p);
+                break;
+            case Protocol.CMD_ADMIN_DELETE:
+                handleAdminDeleteUser(p);
+                break;
+            case Protocol.CMD_STATS:
+                handleStats();
+                break;
+            case Protocol.CMD_SQL_STATS:
+                handleSqlStats(p);
+                break;
+
+            case "QUIT":
+                reply("OK", "BYE");
+                return false;
+            default:
+                // Keeps arbitrary client input out of the statistics.
+                statsName = "UNKNOWN";
+                reply("ERROR", "UnknownCommand");
+        }
+        return true;
+    }
+
+    // --- REPLY OUTPUT ---
+
+    /**
+     * Writes one reply record. In text mode this is {@code kind} followed by the fields joined
+     * with {@code |}; in binary mode it is a single frame with typed fields.
+     */
+    private void reply(String kind, Object... fields) {
+        replySep(kind, "|", fields);
+    }
+
+    /**
+     * Same as {@link #reply}, for the few text replies whose fields use another separator.
+     */
+    private void replySep(String kind, String sep, Object... fields) {
+        long start = System.nanoTime();
+        if ("ERROR".equals(kind)) replyFailed = true;
+        try {
+            write(kind, sep, fields);
+        } finally {
+            replyNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void write(String kind, String sep, Object[] fields) {
+        if (binary) {
+            encoder.begin().putInt(frameTag).putString(kind);
+            for (Object f : fields) encoder.put(f);
+            try {
+                encoder.writeTo(rawOut);
+            } catch (IOException e) {
+                System.err.println("Client write failed: " + e.getMessage());
+            }
+            return;
+        }
+        if (fields.length == 0) {
+            out.println(kind);
+            return;
+        }
+        StringBuilder sb = new StringBuilder(64).append(kind).append(' ');
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append(sep);
+            sb.append(fields[i]);
+        }
+        out.println(sb);
+    }
+
+    private void replyCount(int n) {
+        replySep("OK", " ", "COUNT", n);
+    }
+
+    /**
+     * Reports a failed command. SQLite lock contention (BUSY/LOCKED) and a full hashing queue are
+     * answered with {@code ERROR ServerBusy}, which clients may retry, instead of the command's
+     * generic error.
+     */
+    private void replyFailure(String error, Exception e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof RejectedExecutionException) {
+                reply("ERROR", "ServerBusy");
+                return;
+            }
+            if (t instanceof SQLiteException) {
+                int primary = ((SQLiteException) t).getResultCode().code & 0xff;
+                if (primary == SQLiteErrorCode.SQLITE_BUSY.code || primary == SQLiteErrorCode.SQLITE_LOCKED.code) {
+                    reply("ERROR", "ServerBusy");
+                    return;
+                }
+            }
+        }
+        reply("ERROR", error);
+    }
+
+    // --- PROTOCOL NEGOTIATION ---
+    private void handleProto(String[] p) {
+        if (binary) {
+            reply("OK", Protocol.PROTO_BINARY);
+            return;
+        }
+        if (!Protocol.PROTO_BINARY.equalsIgnoreCase(p[0])) {
+            reply("ERROR", "UnsupportedProtocol");
+            return;
+        }
+        // Acknowledge in text, then every later reply is a frame. The flag is raised before the
+        // ack leaves so the NIO reader already expects frames when the client starts sending them.
+        reply("OK", Protocol.PROTO_BINARY);
+        binary = true;
+        out.flush();
+    }
+
+    private void handleRegister(String[] p) {
+        try {
             if (p.length < 2) {
-                out.println("ERROR BadPayload");
+                reply("ERROR", "BadPayload");
                 return;
             }
             String username = p[0], password = p[1];
             String role = p.length >= 3 ? p[2] : "USER";
+            if (!isValidUsername(username)) {
+                reply("ERROR", "BadUsername");
+                return;
+            }
 
-            if (um.findByUsername(username) != null) {
-                out.println("ERROR Exists");
+            if (UserCache.shared().findByUsername(username) != null) {
+                reply("ERROR", "Exists");
                 return;
             }
 
             String salt = Utils.randomSaltBase64(16);
-            String hash = Utils.hashPassword(password, salt);
+            String hash = PasswordHasher.shared().hash(password, salt);
             User u = new User();
             u.setUsername(username);
             u.setSalt(salt);
             u.setHash(hash);
             u.setRole(role);
-            um.insertUser(u);
-            out.println("OK Registered");
+            MyBatisUtil.write(s -> {
+                s.getMapper(UserMapper.class).insertUser(u);
+                return null;
+            });
+            UserCache.shared().invalidate(username);
+            if ("EMPLOYEE".equalsIgnoreCase(role)) EmployeeDirectory.shared().invalidate();
+            reply("OK", "Registered");
         } catch (Exception e) {
-            out.println("ERROR RegisterFailed");
+            replyFailure("RegisterFailed", e);
         }
     }
 
-    private void handleLogin(String payload) {
-        try (SqlSession session = MyBatisUtil.openSession()) {
-            UserMapper um = session.getMapper(UserMapper.class);
-            String[] p = payload.split("\\|");
+    private void handleLogin(String[] p) {
+        try {
             if (p.length < 2) {
-                out.println("ERROR BadPayload");
+                reply("ERROR", "BadPayload");
                 return;
             }
             String username = p[0], password = p[1];
-            User u = um.findByUsername(username);
+            User u = UserCache.shared().findByUsername(username);
             if (u == null) {
-                out.println("ERROR AuthFailed");
+                reply("ERROR", "AuthFailed");
                 return;
             }
 
-            String computed = Utils.hashPassword(password, u.getSalt());
+            String computed = PasswordHasher.shared().hash(password, u.getSalt());
             if (computed.equals(u.getHash())) {
+                if (!u.getId().equals(loggedUserId)) unsubscribe();
                 loggedUserId = u.getId();
                 loggedUserRole = u.getRole();
-                out.println("OK " + loggedUserId + "|" + u.getUsername() + "|" + loggedUserRole);
-            } else out.println("ERROR AuthFailed");
+                String token = SessionStore.shared().issue(loggedUserId, u.getUsername(), loggedUserRole);
+                reply("OK", loggedUserId, u.getUsername(), loggedUserRole, token);
+            } else reply("ERROR", "AuthFailed");
         } catch (Exception e) {
-            out.println("ERROR AuthError");
+            replyFailure("AuthError", e);
         }
     }
 
+    /**
+     * {@code RESUME <token>}: logs the connection in as the owner of a token issued by LOGIN,
+     * without checking the password again.
+     */
+    private void handleResume(String[] p) {
+        if (p.length < 1 || p[0].trim().isEmpty()) {
+            reply("ERROR", "BadPayload");
+            return;
+        }
+        SessionStore.Session s = SessionStore.shared().resume(p[0].trim());
+        if (s == null) {
+            reply("ERROR", "SessionExpired");
+            return;
+        }
+        if (loggedUserId == null || loggedUserId != s.userId) unsubscribe();
+        loggedUserId = s.userId;
+        loggedUserRole = s.role;
+        reply("OK", s.userId, s.username, s.role);
+    }
+
     // --- ADMIN HANDLERS ---
     private void handleAdminListUsers() {
         if (!"ADMIN".equals(loggedUserRole)) {
-            out.println("ERROR Denied");
+            reply("ERROR", "Denied");
             return;
         }
         try (SqlSession session = MyBatisUtil.openSession()) {
             UserMapper um = session.getMapper(UserMapper.class);
             List<User> users = um.findAll();
-            out.println("OK COUNT " + users.size());
+            replyCount(users.size());
             for (User u : users) {
-                out.println("USER " + u.getId() + "|" + u.getUsername() + "|" + u.getRole());
+                reply("USER", u.getId(), u.getUsername(), u.getRole());
             }
-            out.println("END");
+            reply("END");
         } catch (Exception e) {
-            out.println("ERROR ListFailed");
+            reply("ERROR", "ListFailed");
         }
     }
 
-    private void handleAdminAddUser(String payload) {
+    private void handleAdminListUsersPage(String[] p) {
         if (!"ADMIN".equals(loggedUserRole)) {
-            out.println("ERROR Denied");
+            reply("ERROR", "Denied");
+            return;
+        }
+        Map<String, Object> params;
+        try {
+            params = pageParams(p);
+        } catch (NumberFormatException e) {
+            reply("ERROR", "BadPayload");
+            return;
+        }
+        int limit = (Integer) params.get("pageSize");
+        try (SqlSession session = MyBatisUtil.openSession();
+             Cursor<User> rows = session.getMapper(UserMapper.class).pageAll(params)) {
+            reply("OK", "PAGE");
+            int n = 0;
+            Integer last = null;
+            for (User u : rows) {
+                if (n++ == limit) {
+                    reply("NEXT", last);
+                    break;
+                }
+                reply("USER", u.getId(), u.getUsername(), u.getRole());
+                last = u.getId();
+            }
+            reply("END");
+        } catch (Exception e) {
+            reply("ERROR", "ListFailed");
+        }
+    }
+
+    private void handleAdminAddUser(String[] p) {
+        if (!"ADMIN".equals(loggedUserRole)) {
+            reply("ERROR", "Denied");
             return;
         }
         // Reuse register logic but strictly for admin
-        handleRegister(payload);
+        handleRegister(p);
     }
 
-    private void handleAdminUpdateUser(String payload) {
+    /**
+     * Usernames go back to clients inside reply lines, so they must not hold the text protocol's
+     * field separators ({@code |}, and {@code :} in {@code EMP id:username}) or line breaks.
+     */
+    private static boolean isValidUsername(String username) {
+        if (username.trim().isEmpty()) return false;
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c == '|' || c == ':' || c == '\n' || c == '\r') return false;
+        }
+        return true;
+    }
+
+    private void handleAdminUpdateUser(String[] p) {
         if (!"ADMIN".equals(loggedUserRole)) {
-            out.println("ERROR Denied");
+            reply("ERROR", "Denied");
             return;
         }
         // Payload: ID|Username|Password|Role (Password can be empty to keep existing)
-        String[] p = payload.split("\\|");
         if (p.length < 4) {
-            out.println("ERROR BadPayload");
+            reply("ERROR", "BadPayload");
             return;
         }
 
@@ -194,12 +644,17 @@ public class ClientHandler implements Runnable {
             String username = p[1];
             String password = p[2];
             String role = p[3];
+            if (!isValidUsername(username)) {
+                reply("ERROR", "BadUsername");
+                return;
+            }
 
             User u = um.findById(id);
             if (u == null) {
-                out.println("ERROR NotFound");
+                reply("ERROR", "NotFound");
                 return;
             }
+            String oldUsername = u.getUsername();
 
             u.setUsername(username);
             u.setRole(role);
@@ -207,56 +662,116 @@ public class ClientHandler implements Runnable {
             // Only update password if not empty
             if (!password.trim().isEmpty()) {
                 String salt = Utils.randomSaltBase64(16);
-                String hash = Utils.hashPassword(password, salt);
+                String hash = PasswordHasher.shared().hash(password, salt);
                 u.setSalt(salt);
                 u.setHash(hash);
             }
 
-            um.updateUser(u);
-            out.println("OK Updated");
+            MyBatisUtil.write(s -> {
+                s.getMapper(UserMapper.class).updateUser(u);
+                return null;
+            });
+            UserCache.shared().invalidate(id);
+            UserCache.shared().invalidate(oldUsername);
+            EmployeeDirectory.shared().invalidate();
+            SessionStore.shared().revokeUser(id);
+            reply("OK", "Updated");
         } catch (Exception e) {
-            out.println("ERROR UpdateFailed");
+            replyFailure("UpdateFailed", e);
         }
     }
 
-    private void handleAdminDeleteUser(String payload) {
+    private void handleAdminDeleteUser(String[] p) {
         if (!"ADMIN".equals(loggedUserRole)) {
-            out.println("ERROR Denied");
+            reply("ERROR", "Denied");
             return;
         }
-        try (SqlSession session = MyBatisUtil.openSession()) {
-            UserMapper um = session.getMapper(UserMapper.class);
-            int id = Integer.parseInt(payload);
-            um.deleteUser(id);
-            out.println("OK Deleted");
+        try {
+            int id = Integer.parseInt(p[0]);
+            MyBatisUtil.write(s -> {
+                s.getMapper(UserMapper.class).deleteUser(id);
+                return null;
+            });
+            UserCache.shared().invalidate(id);
+            EmployeeDirectory.shared().invalidate();
+            SessionStore.shared().revokeUser(id);
+            reply("OK", "Deleted");
         } catch (Exception e) {
-            out.println("ERROR DeleteFailed");
+            replyFailure("DeleteFailed", e);
+        }
+    }
+
+    /**
+     * {@code STATS}: one {@code STAT} row per command executed since startup, with the fields of
+     * {@link CommandStats#COLUMNS}.
+     */
+    private void handleStats() {
+        if (!"ADMIN".equals(loggedUserRole)) {
+            reply("ERROR", "Denied");
+            return;
+        }
+        List<Object[]> rows = CommandStats.shared().snapshot();
+        replyCount(rows.size());
+        for (Object[] row : rows) reply("STAT", row);
+        reply("END");
+    }
+
+    /**
+     * {@code SQL_STATS [n]}: the {@code n} (default 10) mapped statements with the most total
+     * time, as {@code SQLSTAT} rows with the fields of {@link StatementStats#COLUMNS}.
+     */
+    private void handleSqlStats(String[] p) {
+        if (!"ADMIN".equals(loggedUserRole)) {
+            reply("ERROR", "Denied");
+            return;
+        }
+        int n;
+        try {
+            n = p.length > 0 && !p[0].isEmpty() ? Integer.parseInt(p[0].trim()) : 10;
+        } catch (NumberFormatException e) {
+            reply("ERROR", "BadPayload");
+            return;
         }
+        List<Object[]> rows = StatementStats.shared().top(Math.max(0, n));
+        replyCount(rows.size());
+        for (Object[] row : rows) reply("SQLSTAT", row);
+        reply("END");
     }
 
     // --- OTHER HANDLERS ---
-    private void handleListEmployees() {
-        try (SqlSession session = MyBatisUtil.openSession()) {
-            UserMapper um = session.getMapper(UserMapper.class);
-            List<Map<String, Object>> emps = um.listEmployees();
-            out.println("OK COUNT " + emps.size());
-            for (Map<String, Object> m : emps) {
-                out.println("EMP " + m.get("id") + ":" + m.get("username"));
+    /**
+     * {@code LIST_EMPLOYEES [knownVersion]}: answers {@code NOT_MODIFIED <v>} when the caller's
+     * copy is current, otherwise the full list with a {@code VERSION <v>} line.
+     */
+    private void handleListEmployees(String[] p) {
+        try {
+            EmployeeDirectory dir = EmployeeDirectory.shared();
+            if (p.length > 0 && !p[0].trim().isEmpty() && Long.parseLong(p[0].trim()) == dir.version()) {
+                reply(Protocol.RESP_NOT_MODIFIED, dir.version());
+                reply("END");
+                return;
+            }
+            EmployeeDirectory.Snapshot snap = dir.get();
+            replyCount(snap.rows.length);
+            reply("VERSION", snap.version);
+            if (binary) {
+                for (Object[] row : snap.rows) reply("EMP", row);
+            } else {
+                for (String line : snap.lines) out.println(line);
             }
-            out.println("END");
+            reply("END");
         } catch (Exception e) {
-            out.println("ERROR ListEmps");
+            reply("ERROR", "ListEmps");
         }
     }
 
-    private void handleBook(String payload) {
+    private void handleBook(String[] p) {
         if (loggedUserId == null) {
-            out.println("ERROR NotLoggedIn");
+            reply("ERROR", "NotLoggedIn");
             return;
         }
-        String[] p = payload.split("\\|");
         if (p.length < 4) {
-            out.println("ERROR BadPayload");
+            reply("ERROR", "BadPayload");
             return;
         }
         try {
@@ -267,99 +782,257 @@ public class ClientHandler implements Runnable {
             LocalTime end = LocalTime.parse(endStr);
 
             if (start.getHour() < 9 || end.isAfter(LocalTime.of(18, 0))) {
-                out.println("ERROR OutsideWorkingHours");
+                reply("ERROR", "OutsideWorkingHours");
                 return;
             }
             if (start.isBefore(LocalTime.of(13, 0)) && end.isAfter(LocalTime.of(12, 0))) {
-                out.println("ERROR LunchBreak");
+                reply("ERROR", "LunchBreak");
                 return;
             }
 
-            try (SqlSession session = MyBatisUtil.openSession()) {
-                AppointmentMapper am = session.getMapper(AppointmentMapper.class);
-                Map<String, Object> params = new HashMap<>();
-                params.put("employeeId", empId);
-                params.put("date", dateStr);
-                params.put("startTime", startStr);
-                params.put("endTime", endStr);
-                if (am.findConflict(params) != null) {
-                    out.println("ERROR SlotTaken");
-                    return;
-                }
+            // Reserve in memory first; SQLite is only written for a range nobody else holds.
+            SlotIndex slots = SlotIndex.shared();
+            if (!slots.tryClaim(empId, date, start, end)) {
+                reply("ERROR", "SlotTaken");
+                return;
+            }
+            Appointment a = new Appointment();
+            a.setUserId(loggedUserId);
+            a.setEmployeeId(empId);
+            a.setDate(dateStr);
+            a.setStartTime(startStr);
+            a.setEndTime(endStr);
+            a.setStatus("PENDING");
+            try {
+                MyBatisUtil.write(s -> {
+                    s.getMapper(AppointmentMapper.class).insertAppointment(a);
+                    return null;
+                });
+            } catch (Exception e) {
+                slots.release(empId, date, start, end);
+                throw e;
+            }
+            reply("OK", "Booked (Pending Confirmation)");
+            // Subscribers act on the id (CONFIRM), so an event without one is worse than none.
+            if (a.getId() != null) {
+                EventBus.shared().publish(new Object[]{Protocol.EVENT_APPT_CREATED, a.getId(), empId, loggedUserId,
+                        dateStr, startStr, endStr, a.getStatus()}, empId, loggedUserId);
+            }
+        } catch (Exception e) {
+            replyFailure("InvalidData", e);
+        }
+    }
 
-                Appointment a = new Appointment();
-                a.setUserId(loggedUserId);
-                a.setEmployeeId(empId);
-                a.setDate(dateStr);
-                a.setStartTime(startStr);
-                a.setEndTime(endStr);
-                a.setStatus("PENDING");
-                am.insertAppointment(a);
-                out.println("OK Booked (Pending Confirmation)");
+    /**
+     * Availability bitmap per day, read from the {@link SlotIndex} without touching SQLite.
+     * Slots outside working hours or over lunch are never reported free.
+     */
+    private void handleFreeSlots(String[] p) {
+        if (loggedUserId == null) {
+            reply("ERROR", "NotLoggedIn");
+            return;
+        }
+        if (p.length < 3) {
+            reply("ERROR", "BadPayload");
+            return;
+        }
+        try {
+            int empId = Integer.parseInt(p[0]);
+            LocalDate from = LocalDate.parse(p[1]);
+            LocalDate to = LocalDate.parse(p[2]);
+            long days = to.toEpochDay() - from.toEpochDay() + 1;
+            if (days < 1 || days > Protocol.MAX_FREE_SLOT_DAYS) {
+                reply("ERROR", "BadRange");
+                return;
+            }
+            int lunchMask = 0;
+            for (int i = 0; i < Protocol.SLOTS_PER_DAY; i++) {
+                int start = Protocol.DAY_START_MINUTE + i * Protocol.SLOT_MINUTES;
+                if (start < 13 * 60 && start + Protocol.SLOT_MINUTES > 12 * 60) lunchMask |= 1 << i;
+            }
+            SlotIndex slots = SlotIndex.shared();
+            replyCount((int) days);
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                int mask = slots.freeMask(empId, d, Protocol.DAY_START_MINUTE, Protocol.SLOT_MINUTES,
+                        Protocol.SLOTS_PER_DAY) & ~lunchMask;
+                reply("FREE", d.toString(), Integer.toHexString(mask));
             }
+            reply("END");
         } catch (Exception e) {
-            out.println("ERROR InvalidData");
+            reply("ERROR", "InvalidData");
         }
     }
 
     private void handleMyAppts() {
         if (loggedUserId == null) {
-            out.println("ERROR NotLoggedIn");
+            reply("ERROR", "NotLoggedIn");
             return;
         }
         try (SqlSession session = MyBatisUtil.openSession()) {
             AppointmentMapper am = session.getMapper(AppointmentMapper.class);
-            UserMapper um = session.getMapper(UserMapper.class);
             List<Appointment> list;
-            if ("EMPLOYEE".equalsIgnoreCase(loggedUserRole)) list = am.listByEmployee(loggedUserId);
-            else list = am.listByUser(loggedUserId);
+            if ("EMPLOYEE".equalsIgnoreCase(loggedUserRole)) list = am.listByEmployeeWithNames(loggedUserId);
+            else list = am.listByUserWithNames(loggedUserId);
 
-            out.println("OK COUNT " + list.size());
+            replyCount(list.size());
             for (Appointment a : list) {
-                String otherName;
-                if ("EMPLOYEE".equalsIgnoreCase(loggedUserRole)) otherName = um.usernameById(a.getUserId());
-                else otherName = um.usernameById(a.getEmployeeId());
-                out.println("APPT " + a.getId() + "|" + otherName + "|" + a.getDate() + "|" + a.getStartTime() + "|" + a.getStatus());
+                reply("APPT", a.getId(), a.getOtherName(), a.getDate(), a.getStartTime(), a.getStatus());
             }
-            out.println("END");
+            reply("END");
         } catch (Exception e) {
-            out.println("ERROR ApptsFailed");
+            reply("ERROR", "ApptsFailed");
         }
     }
 
-    private void handleConfirm(String payload) {
+    /**
+     * {@code MY_APPTS_SINCE <seq>}: the caller's appointments inserted or updated after
+     * {@code seq}, followed by {@code SEQ <latest>} to send next time.
+     */
+    private void handleMyApptsSince(String[] p) {
         if (loggedUserId == null) {
-            out.println("ERROR NotLoggedIn");
+            reply("ERROR", "NotLoggedIn");
             return;
         }
-        if (!"EMPLOYEE".equalsIgnoreCase(loggedUserRole)) {
-            out.println("ERROR PermissionDenied");
+        long since;
+        try {
+            since = p.length == 0 || p[0].trim().isEmpty() ? 0 : Long.parseLong(p[0].trim());
+        } catch (NumberFormatException e) {
+            reply("ERROR", "BadPayload");
+            return;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("ownerId", loggedUserId);
+        params.put("sinceSeq", since);
+        boolean employee = "EMPLOYEE".equalsIgnoreCase(loggedUserRole);
+        try (SqlSession session = MyBatisUtil.openSession()) {
+            AppointmentMapper am = session.getMapper(AppointmentMapper.class);
+            List<Appointment> list = employee ? am.changedForEmployee(params) : am.changedForUser(params);
+            long latest = list.isEmpty() ? since : list.get(list.size() - 1).getChangeSeq();
+            replyCount(list.size());
+            for (Appointment a : list) {
+                reply("APPT", a.getId(), a.getOtherName(), a.getDate(), a.getStartTime(), a.getStatus());
+            }
+            reply("SEQ", latest);
+            reply("END");
+        } catch (Exception e) {
+            reply("ERROR", "ApptsFailed");
+        }
+    }
+
+    /**
+     * Keyset-paged MY_APPTS: {@code MY_APPTS_PAGE [afterId][|pageSize]}. Rows are streamed from a
+     * cursor; a {@code NEXT <id>} line before {@code END} means more rows follow that id.
+     */
+    private void handleMyApptsPage(String[] p) {
+        if (loggedUserId == null) {
+            reply("ERROR", "NotLoggedIn");
+            return;
+        }
+        Map<String, Object> params;
+        try {
+            params = pageParams(p);
+        } catch (NumberFormatException e) {
+            reply("ERROR", "BadPayload");
             return;
         }
+        int limit = (Integer) params.get("pageSize");
+        boolean employee = "EMPLOYEE".equalsIgnoreCase(loggedUserRole);
+        params.put("ownerId", loggedUserId);
         try (SqlSession session = MyBatisUtil.openSession()) {
             AppointmentMapper am = session.getMapper(AppointmentMapper.class);
+            try (Cursor<Appointment> rows = employee ? am.pageByEmployee(params) : am.pageByUser(params)) {
+                reply("OK", "PAGE");
+                int n = 0;
+                Integer last = null;
+                for (Appointment a : rows) {
+                    if (n++ == limit) {
+                        reply("NEXT", last);
+                        break;
+                    }
+                    reply("APPT", a.getId(), a.getOtherName(), a.getDate(), a.getStartTime(), a.getStatus());
+                    last = a.getId();
+                }
+                reply("END");
+            }
+        } catch (Exception e) {
+            reply("ERROR", "ApptsFailed");
+        }
+    }
+
+    /**
+     * Parses {@code afterId|pageSize} for the paged commands. The query asks for one extra row
+     * so the handler can tell whether another page exists.
+     */
+    private static Map<String, Object> pageParams(String[] p) {
+        int afterId = p.length > 0 && !p[0].trim().isEmpty() ? Integer.parseInt(p[0].trim()) : 0;
+        int size = p.length > 1 && !p[1].trim().isEmpty() ? Integer.parseInt(p[1].trim()) : Protocol.DEFAULT_PAGE_SIZE;
+        size = Math.max(1, Math.min(size, Protocol.MAX_PAGE_SIZE));
+        Map<String, Object> params = new HashMap<>();
+        params.put("afterId", afterId);
+        params.put("pageSize", size);
+        params.put("fetchSize", size + 1);
+        return params;
+    }
+
+    private void handleConfirm(String[] p) {
+        if (loggedUserId == null) {
+            reply("ERROR", "NotLoggedIn");
+            return;
+        }
+        if (!"EMPLOYEE".equalsIgnoreCase(loggedUserRole)) {
+            reply("ERROR", "PermissionDenied");
+            return;
+        }
+        try {
+            int id = Integer.parseInt(p[0]);
             Map<String, Object> params = new HashMap<>();
-            params.put("id", Integer.parseInt(payload));
+            params.put("id", id);
             params.put("status", "CONFIRMED");
-            am.updateStatus(params);
-            out.println("OK Confirmed");
+            Appointment a = MyBatisUtil.write(s -> {
+                AppointmentMapper m = s.getMapper(AppointmentMapper.class);
+                m.updateStatus(params);
+                return m.findById(id);
+            });
+            reply("OK", "Confirmed");
+            if (a != null) {
+                EventBus.shared().publish(new Object[]{Protocol.EVENT_APPT_STATUS, id, a.getStatus()},
+                        a.getUserId(), a.getEmployeeId());
+            }
         } catch (Exception e) {
-            out.println("ERROR ConfirmFailed");
+            replyFailure("ConfirmFailed", e);
+        }
+    }
+
+    /**
+     * {@code SUBSCRIBE}: from now on this connection is sent {@code EVENT} lines for appointments
+     * created for or by the logged-in user and for status changes of their appointments.
+     */
+    private void handleSubscribe() {
+        if (loggedUserId == null) {
+            reply("ERROR", "NotLoggedIn");
+            return;
+        }
+        synchronized (this) {
+            if (!loggedUserId.equals(subscribedUserId)) {
+                unsubscribe();
+                EventBus.shared().subscribe(loggedUserId, this);
+                subscribedUserId = loggedUserId;
+            }
         }
+        reply("OK", "Subscribed");
     }
 
     private void handleMyInfo() {
         if (loggedUserId == null) {
-            out.println("ERROR NotLoggedIn");
+            reply("ERROR", "NotLoggedIn");
             return;
         }
-        try (SqlSession session = MyBatisUtil.openSession()) {
-            UserMapper um = session.getMapper(UserMapper.class);
-            User u = um.findByUsername(um.usernameById(loggedUserId));
-            out.println("OK " + u.getUsername() + " " + u.getRole());
-            out.println("END");
+        try {
+            User u = UserCache.shared().findById(loggedUserId);
+            replySep("OK", " ", u.getUsername(), u.getRole());
+            reply("END");
         } catch (Exception e) {
-            out.println("ERROR GetInfoFailed");
+            reply("ERROR", "GetInfoFailed");
         }
     }
 }
\ No newline at end of file
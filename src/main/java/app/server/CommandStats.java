@@ -0,0 +1,132 @@
+package app.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-command call counts, error counts and latency histograms. A command's total time is split
+ * further into time spent in the database (mapped statements, see {@link StatementTimer}, and
+ * waiting for an offloaded write) and time spent encoding and writing its reply; what is left is
+ * the handler's own work, e.g. password hashing or cursor iteration. Recording takes no locks.
+ * <p>
+ * DB time is collected per thread: the command runs on one thread from start to end, and
+ * statements executed on it while it does are added to it.
+ */
+public final class CommandStats {
+    /** Fields of a {@link #snapshot()} row; latencies are in microseconds. */
+    public static final String[] COLUMNS = {"command", "count", "errors", "p50Us", "p90Us", "p99Us", "maxUs",
+            "dbAvgUs", "dbP99Us", "replyAvgUs", "replyP99Us"};
+
+    private static final CommandStats SHARED = new CommandStats();
+    private static final ThreadLocal<Sample> CURRENT = ThreadLocal.withInitial(Sample::new);
+
+    private final Map<String, Entry> byCommand = new ConcurrentHashMap<>();
+
+    public static CommandStats shared() {
+        return SHARED;
+    }
+
+    /** One command in progress on the current thread. */
+    static final class Sample {
+        private long start;
+        private long dbNanos;
+        private boolean active;
+
+        long dbNanos() {
+            return dbNanos;
+        }
+    }
+
+    private static final class Entry {
+        final LongAdder errors = new LongAdder();
+        final LatencyHistogram total = new LatencyHistogram();
+        final LatencyHistogram db = new LatencyHistogram();
+        final LatencyHistogram reply = new LatencyHistogram();
+    }
+
+    /**
+     * Starts timing a command on the current thread.
+     */
+    Sample begin() {
+        Sample s = CURRENT.get();
+        s.dbNanos = 0;
+        s.active = true;
+        s.start = System.nanoTime();
+        return s;
+    }
+
+    /**
+     * Finishes the command started with {@link #begin()}.
+     *
+     * @param replyNanos time spent encoding and writing the reply
+     * @param failed     whether the command answered with an error
+     */
+    void end(String command, Sample s, long replyNanos, boolean failed) {
+        long elapsed = System.nanoTime() - s.start;
+        s.active = false;
+        Entry e = byCommand.computeIfAbsent(command, k -> new Entry());
+        e.total.recordNanos(elapsed);
+        e.db.recordNanos(s.dbNanos);
+        e.reply.recordNanos(replyNanos);
+        if (failed) e.errors.increment();
+    }
+
+    /**
+     * Adds database time to the command running on the current thread, if any.
+     */
+    static void addDbNanos(long nanos) {
+        Sample s = CURRENT.get();
+        if (s.active) s.dbNanos += nanos;
+    }
+
+    /**
+     * One row per command seen so far, sorted by name, with the fields in {@link #COLUMNS}.
+     */
+    public List<Object[]> snapshot() {
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, Entry> me : new TreeMap<>(byCommand).entrySet()) {
+            Entry e = me.getValue();
+            rows.add(new Object[]{me.getKey(), e.total.count(), e.errors.sum(),
+                    e.total.percentileMicros(50), e.total.percentileMicros(90), e.total.percentileMicros(99),
+                    e.total.maxMicros(), e.db.meanMicros(), e.db.percentileMicros(99),
+                    e.reply.meanMicros(), e.reply.percentileMicros(99)});
+        }
+        return rows;
+    }
+
+    /**
+     * Writes {@link #snapshot()} as CSV, replacing the file in one step so readers never see a
+     * partial dump.
+     */
+    public void dump(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                w.write("# " + Instant.now() + "\n");
+                w.write(String.join(",", COLUMNS) + "\n");
+                for (Object[] row : snapshot()) {
+                    for (int i = 0; i < row.length; i++) {
+                        if (i > 0) w.write(',');
+                        w.write(String.valueOf(row[i]));
+                    }
+                    w.write('\n');
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package app.server;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of simultaneous connections per remote address.
+ */
+public class ConnectionLimiter {
+    private final int maxPerAddress;
+    private final ConcurrentHashMap<InetAddress, Integer> open = new ConcurrentHashMap<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConnectionLimiter(int maxPerAddress) {
+        this.maxPerAddress = maxPerAddress;
+    }
+
+    /**
+     * Reserves a slot for the address. Every successful call must be paired with {@link #release}.
+     */
+    public boolean tryAcquire(InetAddress addr) {
+        boolean[] admitted = {false};
+        open.compute(addr, (k, n) -> {
+            int cur = n == null ? 0 : n;
+            if (cur >= maxPerAddress) return n;
+            admitted[0] = true;
+            return cur + 1;
+        });
+        if (admitted[0]) total.incrementAndGet();
+        else rejected.incrementAndGet();
+        return admitted[0];
+    }
+
+    public void release(InetAddress addr) {
+        total.decrementAndGet();
+        open.computeIfPresent(addr, (k, n) -> n <= 1 ? null : n - 1);
+    }
+
+    public int openConnections() {
+        return total.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    public String stats() {
+        return "connections=" + openConnections() + " addresses=" + open.size()
+                + " rejectedConnections=" + rejectedCount();
+    }
+}
@@ -0,0 +1,67 @@
+package app.server;
+
+import app.server.mappers.UserMapper;
+import org.apache.ibatis.session.SqlSession;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The employee list as served by LIST_EMPLOYEES, kept in memory with its reply lines already
+ * rendered. Every change that can affect the list bumps the version; the snapshot is reloaded on
+ * the next request. Versions start at the server's start time so they never repeat across restarts.
+ */
+public final class EmployeeDirectory {
+    private static final EmployeeDirectory SHARED = new EmployeeDirectory();
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private volatile Snapshot snapshot;
+
+    public static EmployeeDirectory shared() {
+        return SHARED;
+    }
+
+    public static final class Snapshot {
+        public final long version;
+        public final Object[][] rows;   // {id, username}
+        public final String[] lines;    // "EMP id:username"
+
+        Snapshot(long version, Object[][] rows) {
+            this.version = version;
+            this.rows = rows;
+            this.lines = new String[rows.length];
+            for (int i = 0; i < rows.length; i++) lines[i] = "EMP " + rows[i][0] + ":" + rows[i][1];
+        }
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public Snapshot get() {
+        Snapshot s = snapshot;
+        long v = version.get();
+        if (s != null && s.version == v) return s;
+        List<Map<String, Object>> emps;
+        try (SqlSession session = MyBatisUtil.openSession()) {
+            emps = session.getMapper(UserMapper.class).listEmployees();
+        }
+        Object[][] rows = new Object[emps.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            Map<String, Object> m = emps.get(i);
+            rows[i] = new Object[]{m.get("id"), m.get("username")};
+        }
+        s = new Snapshot(v, rows);
+        // keep it only if no change slipped in while loading
+        if (version.get() == v) snapshot = s;
+        return s;
+    }
+
+    /**
+     * Call after any user insert, update or delete that may change who is an employee or their name.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,64 @@
+package app.server;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * In-process publish/subscribe for appointment events, keyed by the user who should hear about
+ * them. {@link #publish} only hands the event to each subscriber's own bounded queue and returns;
+ * writing it to the socket happens later on the subscriber's side, so a slow or stalled client
+ * never holds up the command that produced the event.
+ */
+public final class EventBus {
+    private static final EventBus SHARED = new EventBus();
+
+    /** Receives events; implementations must not block. */
+    public interface Subscriber {
+        void offer(Object[] event);
+    }
+
+    private final Map<Integer, Set<Subscriber>> byUser = new ConcurrentHashMap<>();
+
+    public static EventBus shared() {
+        return SHARED;
+    }
+
+    public void subscribe(int userId, Subscriber s) {
+        byUser.computeIfAbsent(userId, k -> new CopyOnWriteArraySet<>()).add(s);
+    }
+
+    public void unsubscribe(int userId, Subscriber s) {
+        byUser.computeIfPresent(userId, (k, set) -> {
+            set.remove(s);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Delivers {@code event} ({@code [type, fields...]}) to every subscriber of each given user;
+     * a user listed twice hears it once.
+     */
+    public void publish(Object[] event, int... userIds) {
+        for (int i = 0; i < userIds.length; i++) {
+            if (isRepeat(userIds, i)) continue;
+            Set<Subscriber> subs = byUser.get(userIds[i]);
+            if (subs == null) continue;
+            for (Subscriber s : subs) s.offer(event);
+        }
+    }
+
+    private static boolean isRepeat(int[] ids, int i) {
+        for (int j = 0; j < i; j++) {
+            if (ids[j] == ids[i]) return true;
+        }
+        return false;
+    }
+
+    public String stats() {
+        int n = 0;
+        for (Set<Subscriber> s : byUser.values()) n += s.size();
+        return "subscribers=" + n;
+    }
+}
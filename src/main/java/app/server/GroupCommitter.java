@@ -0,0 +1,125 @@
+package app.server;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single writer thread that commits queued writes in groups: it takes whatever is waiting (up to
+ * {@code batchSize}, lingering at most {@code lingerMs} for more), runs the group in one
+ * transaction and commits once. Each caller's future completes only after that commit, so an
+ * acknowledged write is durable.
+ * <p>
+ * Statements execute immediately inside the transaction (a {@link ExecutorType#SIMPLE} session,
+ * not a BATCH one), so work sees update counts and generated keys as it would on its own; the
+ * saving is the single commit, i.e. one journal sync per group. If any write in a group fails the
+ * group is rolled back and every write is run again in a transaction of its own, so work may run
+ * twice and must not have effects outside its session.
+ * <p>
+ * At most {@code queueCapacity} writes wait for the thread; beyond that {@link #submit} throws
+ * {@link RejectedExecutionException}, so a write storm is turned away instead of piling up.
+ */
+public class GroupCommitter {
+    private final SqlSessionFactory factory;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Pending<?>> queue;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    public GroupCommitter(SqlSessionFactory factory, int batchSize, int lingerMs, int queueCapacity) {
+        this.factory = factory;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMs));
+        Thread t = new Thread(this::loop, "db-group-commit");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public <T> Future<T> submit(MyBatisUtil.Work<T> work) {
+        Pending<T> p = new Pending<>(work);
+        if (!queue.offer(p)) throw new RejectedExecutionException("Group commit queue full");
+        return p.future;
+    }
+
+    public String stats() {
+        long b = batches.get();
+        return "groupCommit batches=" + b + " writes=" + writes.get()
+                + " avgBatch=" + (b == 0 ? 0 : String.format("%.1f", (double) writes.get() / b))
+                + " queued=" + queue.size();
+    }
+
+    private void loop() {
+        List<Pending<?>> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    long left = deadline - System.nanoTime();
+                    Pending<?> p = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (p == null) break;
+                    batch.add(p);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending<?>> batch) {
+        try (SqlSession session = factory.openSession(ExecutorType.SIMPLE, false)) {
+            for (Pending<?> p : batch) p.run(session);
+            session.commit();
+            for (Pending<?> p : batch) p.complete();
+            batches.incrementAndGet();
+            writes.addAndGet(batch.size());
+            return;
+        } catch (Exception e) {
+            // fall through: one bad write must not fail the others in its group
+        }
+        for (Pending<?> p : batch) {
+            try (SqlSession session = factory.openSession(ExecutorType.SIMPLE, false)) {
+                p.run(session);
+                session.commit();
+                p.complete();
+                batches.incrementAndGet();
+                writes.incrementAndGet();
+            } catch (Exception e) {
+                p.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Pending<T> {
+        final MyBatisUtil.Work<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+
+        Pending(MyBatisUtil.Work<T> work) {
+            this.work = work;
+        }
+
+        void run(SqlSession session) throws Exception {
+            result = work.run(session);
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package app.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for the server's own work, so a recording shows commands, SQL and
+ * password hashing next to GC pauses and lock contention on the same threads. They cost next to
+ * nothing unless a recording with them enabled is running, e.g.
+ * {@code -XX:StartFlightRecording=filename=server.jfr,settings=profile}.
+ * <p>
+ * {@code jdk.jfr} only exists from Java 8u262 on, so callers go through the static methods here,
+ * which check once whether it loads and otherwise do nothing. Only {@link Recorder} and the event
+ * classes touch {@code jdk.jfr}, and they are never loaded without it.
+ */
+public final class JfrEvents {
+    private static final String CATEGORY = "Appointment Server";
+    private static final boolean AVAILABLE = available();
+
+    private JfrEvents() {
+    }
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts a {@link Command} event; pass the result to {@link #endCommand}. Null without JFR.
+     */
+    static Object beginCommand() {
+        return AVAILABLE ? Recorder.beginCommand() : null;
+    }
+
+    static void endCommand(Object event, String command, int userId, boolean failed, long dbNanos,
+                           long replyNanos) {
+        if (event != null) Recorder.endCommand(event, command, userId, failed, dbNanos, replyNanos);
+    }
+
+    /**
+     * Starts a {@link Sql} event; pass the result to {@link #endSql}. Null without JFR.
+     */
+    static Object beginSql() {
+        return AVAILABLE ? Recorder.beginSql() : null;
+    }
+
+    static void endSql(Object event, String statement, String type, int rows) {
+        if (event != null) Recorder.endSql(event, statement, type, rows);
+    }
+
+    /**
+     * Starts a {@link PasswordHash} event; pass the result to {@link #endPasswordHash}. Null
+     * without JFR.
+     */
+    static Object beginPasswordHash() {
+        return AVAILABLE ? Recorder.beginPasswordHash() : null;
+    }
+
+    static void endPasswordHash(Object event, int iterations) {
+        if (event != null) Recorder.endPasswordHash(event, iterations);
+    }
+
+    private static final class Recorder {
+        static Object beginCommand() {
+            Command event = new Command();
+            event.begin();
+            return event;
+        }
+
+        static Object beginSql() {
+            Sql event = new Sql();
+            event.begin();
+            return event;
+        }
+
+        static Object beginPasswordHash() {
+            PasswordHash event = new PasswordHash();
+            event.begin();
+            return event;
+        }
+
+        static void endCommand(Object e, String command, int userId, boolean failed, long dbNanos,
+                               long replyNanos) {
+            Command event = (Command) e;
+            event.end();
+            if (!event.shouldCommit()) return;
+            event.command = command;
+            event.userId = userId;
+            event.failed = failed;
+            event.dbTime = dbNanos;
+            event.replyTime = replyNanos;
+            event.commit();
+        }
+
+        static void endSql(Object e, String statement, String type, int rows) {
+            Sql event = (Sql) e;
+            event.end();
+            if (!event.shouldCommit()) return;
+            event.statement = statement;
+            event.type = type;
+            event.rows = rows;
+            event.commit();
+        }
+
+        static void endPasswordHash(Object e, int iterations) {
+            PasswordHash event = (PasswordHash) e;
+            event.iterations = iterations;
+            event.commit();
+        }
+    }
+
+    @Name("app.Command")
+    @Label("Command")
+    @Description("One protocol command, from dispatch to the last reply line")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Command extends Event {
+        @Label("Command")
+        public String command;
+
+        @Label("User Id")
+        @Description("Logged-in user after the command, 0 if none")
+        public int userId;
+
+        @Label("Failed")
+        public boolean failed;
+
+        @Label("DB Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long dbTime;
+
+        @Label("Reply Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long replyTime;
+    }
+
+    @Name("app.Sql")
+    @Label("SQL Statement")
+    @Description("One mapped statement executed through MyBatis")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Sql extends Event {
+        @Label("Statement")
+        public String statement;
+
+        @Label("Type")
+        public String type;
+
+        @Label("Rows")
+        @Description("Rows returned or updated, -1 when not known yet (cursor, batched update)")
+        public int rows;
+    }
+
+    @Name("app.PasswordHash")
+    @Label("Password Hash")
+    @Description("One PBKDF2 password hash")
+    @Category(CATEGORY)
+    public static final class PasswordHash extends Event {
+        @Label("Iterations")
+        public int iterations;
+    }
+}
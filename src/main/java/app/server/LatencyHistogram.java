@@ -0,0 +1,84 @@
+package app.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in microseconds. Buckets are log-linear: eight per power of two,
+ * so a reported percentile is at most 12.5% above the true value, and the whole range up to about
+ * three days fits in under 300 counters. Recording is one array increment plus two adds and never
+ * blocks; reads see a consistent-enough snapshot for monitoring.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_MSB = 37;
+    private static final int BUCKETS = (MAX_MSB - SUB_BITS + 2) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long us = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucket(us));
+        total.increment();
+        sumMicros.add(us);
+        long max;
+        while (us > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, us)) {
+            // retry
+        }
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long sumMicros() {
+        return sumMicros.sum();
+    }
+
+    public long meanMicros() {
+        long n = total.sum();
+        return n == 0 ? 0 : sumMicros.sum() / n;
+    }
+
+    public long maxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0-100), in microseconds.
+     */
+    public long percentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += snapshot[i] = counts.get(i);
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            // The last bucket also holds everything beyond the range; only max bounds it.
+            if (seen >= rank) return i == BUCKETS - 1 ? maxMicros.get() : Math.min(upperBound(i), maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    static int bucket(long us) {
+        if (us < SUB) return (int) us;
+        int msb = 63 - Long.numberOfLeadingZeros(us);
+        if (msb > MAX_MSB) return BUCKETS - 1;
+        int shift = msb - SUB_BITS;
+        return (msb - SUB_BITS + 1) * SUB + (int) ((us >>> shift) & (SUB - 1));
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB) return bucket;
+        int shift = bucket / SUB - 1;
+        long lower = (long) (SUB + bucket % SUB) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -5,10 +5,16 @@ import app.server.mappers.UserMapper;
 import org.apache.ibatis.binding.MapperMethod;
 import org.apache.ibatis.session.SqlSession;
 
+import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.Statement;
@@ -16,17 +22,19 @@ import java.io.InputStream;
 import java.io.IOException;
 
 /**
- * Main server: starts socket listener, initializes DB schema (schema.sql),
- * seeds admin and employee if not present, and accepts client connections.
+ * Main server: starts socket listener, initializes DB schema (schema.sql plus pending migrations),
+ * seeds admin and employee if not present, loads the slot index, and accepts client connections.
  */
 public class MainServer {
     private final int port;
-    private final ExecutorService pool = Executors.newCachedThreadPool();
-    private final String dbUrl = "jdbc:sqlite:appointments.db";
+    private final ConnectionLimiter limiter = new ConnectionLimiter(ServerConfig.MAX_CONN_PER_IP);
+    private WorkerPool pool;
+    private final String dbUrl = ServerConfig.DB_URL;
 
     public MainServer(int port) {
         this.port = port;
         initDatabase();
+        SlotIndex.shared().rebuild();
     }
 
     private void initDatabase() {
@@ -47,6 +55,8 @@ public class MainServer {
                     }
                 }
             }
+            // upgrade existing databases in place (indexes etc.)
+            new SchemaMigrator(c).migrate();
             // seed admin & employee if not exists using MyBatis
             try (SqlSession session = MyBatisUtil.openSession()) {
                 UserMapper um = session.getMapper(UserMapper.class);
@@ -81,16 +91,81 @@ public class MainServer {
     }
 
     public void start() throws IOException {
+        if (ServerConfig.isNio()) {
+            pool = new WorkerPool("worker", ServerConfig.WORKERS, ServerConfig.QUEUE_CAPACITY);
+            startStatsLogger();
+            new NioServer(port, ServerConfig.IO_THREADS, pool, limiter).start();
+            return;
+        }
+        // No queue: a queued connection would sit without even a WELCOME until a thread frees up,
+        // so one that cannot be served now is told ServerBusy at once.
+        pool = new WorkerPool("conn", ServerConfig.MAX_CONNECTIONS, 0);
+        startStatsLogger();
         try (ServerSocket ss = new ServerSocket(port)) {
             System.out.println("Server started on port " + port);
             while (true) {
                 Socket s = ss.accept();
                 System.out.println("Accepted " + s.getRemoteSocketAddress());
-                pool.submit(new ClientHandler(s));
+                InetAddress addr = s.getInetAddress();
+                if (!limiter.tryAcquire(addr)) {
+                    rejectBusy(s);
+                    continue;
+                }
+                ClientHandler handler = new ClientHandler(s);
+                boolean queued = pool.tryExecute(() -> {
+                    try {
+                        handler.run();
+                    } finally {
+                        limiter.release(addr);
+                    }
+                });
+                if (!queued) {
+                    limiter.release(addr);
+                    rejectBusy(s);
+                }
             }
         }
     }
 
+    /**
+     * Tells a client that could not be admitted why, then hangs up.
+     */
+    static void rejectBusy(Socket s) {
+        try (Socket c = s) {
+            OutputStream os = c.getOutputStream();
+            os.write("ERROR ServerBusy\n".getBytes(StandardCharsets.UTF_8));
+            os.flush();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public String stats() {
+        String db = MyBatisUtil.writeStats();
+        return pool.stats() + " " + limiter.stats() + " " + UserCache.shared().stats()
+                + " " + PasswordHasher.shared().stats() + " " + SessionStore.shared().stats()
+                + (db.isEmpty() ? "" : " " + db);
+    }
+
+    private void startStatsLogger() {
+        if (ServerConfig.STATS_INTERVAL <= 0) return;
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(() -> System.out.println("[stats] " + stats()),
+                ServerConfig.STATS_INTERVAL, ServerConfig.STATS_INTERVAL, TimeUnit.SECONDS);
+        if (ServerConfig.STATS_FILE.isEmpty()) return;
+        Path file = Paths.get(ServerConfig.STATS_FILE);
+        timer.scheduleAtFixedRate(() -> {
+            try {
+                CommandStats.shared().dump(file);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Writing " + file + " failed: " + e.getMessage());
+            }
+        }, ServerConfig.STATS_INTERVAL, ServerConfig.STATS_INTERVAL, TimeUnit.SECONDS);
+    }
+
     public static void main(String[] args) throws Exception {
         int port = 5555;
         if (args.length >= 1) port = Integer.parseInt(args[0]);
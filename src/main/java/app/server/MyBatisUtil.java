@@ -1,6 +1,11 @@
 package app.server;
 
 import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
@@ -9,12 +14,47 @@ import org.apache.ibatis.session.SqlSession;
 
 public class MyBatisUtil {
     private static final SqlSessionFactory sqlSessionFactory;
+    // WAL mode only: one connection and one thread that perform every write
+    private static final SqlSessionFactory writerFactory;
+    private static final ExecutorService writer;
+    // group-commit mode: replaces the writer thread above
+    private static final GroupCommitter committer;
 
     static {
         try {
             String resource = "mybatis-config.xml";
-            InputStream inputStream = Resources.getResourceAsStream(resource);
-            sqlSessionFactory = new SqlSessionFactoryBuilder().build(inputStream);
+            Properties props = new Properties();
+            props.setProperty("db.url", ServerConfig.DB_URL);
+            props.setProperty("db.readers", String.valueOf(ServerConfig.DB_READERS));
+            props.setProperty("db.busyTimeout", String.valueOf(ServerConfig.DB_BUSY_TIMEOUT));
+            props.setProperty("db.slowQueryMs", String.valueOf(ServerConfig.DB_SLOW_QUERY_MS));
+            props.setProperty("db.journalMode", ServerConfig.isWal() ? "WAL" : "DELETE");
+            props.setProperty("db.synchronous", ServerConfig.isWal() ? "NORMAL" : "FULL");
+            try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+                sqlSessionFactory = new SqlSessionFactoryBuilder().build(inputStream, props);
+            }
+            if (ServerConfig.isWal()) {
+                try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+                    writerFactory = new SqlSessionFactoryBuilder().build(inputStream, "writer", props);
+                }
+            } else {
+                writerFactory = null;
+            }
+            if (ServerConfig.GROUP_COMMIT) {
+                committer = new GroupCommitter(writerFactory != null ? writerFactory : sqlSessionFactory,
+                        ServerConfig.GROUP_COMMIT_BATCH, ServerConfig.GROUP_COMMIT_LINGER_MS, ServerConfig.QUEUE_CAPACITY);
+                writer = null;
+            } else if (writerFactory != null) {
+                committer = null;
+                writer = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "db-writer");
+                    t.setDaemon(true);
+                    return t;
+                });
+            } else {
+                committer = null;
+                writer = null;
+            }
         } catch (Exception ex) {
             throw new ExceptionInInitializerError("MyBatis initialization failed: " + ex.getMessage());
         }
@@ -23,4 +63,53 @@ public class MyBatisUtil {
     public static SqlSession openSession() {
         return sqlSessionFactory.openSession(true);
     }
+
+    public interface Work<T> {
+        T run(SqlSession session) throws Exception;
+    }
+
+    /**
+     * Runs a write and waits for it. In WAL mode all writes are serialized on the single
+     * {@code db-writer} thread, so they never compete for SQLite's write lock while readers keep
+     * using the pooled connections. With group commit they are queued to the {@link GroupCommitter}
+     * and acknowledged once their batch has committed. Otherwise the write runs inline.
+     * <p>
+     * Under group commit {@code work} shares a transaction with the rest of its group and may be
+     * run a second time if another write in the group fails (see {@link GroupCommitter}), so it
+     * must only act through the session it is given.
+     */
+    public static <T> T write(Work<T> work) throws Exception {
+        Future<T> f;
+        if (committer != null) {
+            f = committer.submit(work);
+        } else if (writer != null) {
+            f = writer.submit(() -> {
+                try (SqlSession session = writerFactory.openSession(true)) {
+                    return work.run(session);
+                }
+            });
+        } else {
+            try (SqlSession session = openSession()) {
+                return work.run(session);
+            }
+        }
+        // The statements run on another thread; the command still spends this long on them.
+        long waitStart = System.nanoTime();
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw new RuntimeException(cause);
+        } finally {
+            CommandStats.addDbNanos(System.nanoTime() - waitStart);
+        }
+    }
+
+    /**
+     * Group-commit counters, or an empty string when group commit is off.
+     */
+    public static String writeStats() {
+        return committer == null ? "" : committer.stats();
+    }
 }
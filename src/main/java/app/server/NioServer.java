@@ -0,0 +1,370 @@
+package app.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.common.WireCodec;
+
+/**
+ * Selector-based connection engine. A few I/O threads read sockets and split the byte stream
+ * into protocol lines, or {@link WireCodec} frames once negotiated; complete requests are executed
+ * by a bounded worker pool through the same {@link ClientHandler} used in blocking mode, so
+ * clients see identical replies.
+ * <p>
+ * Requests of one connection are always executed in order and never by two workers at once.
+ * When the worker queue is full the pending requests are answered with {@code ERROR ServerBusy}.
+ * A connection with more than {@link ServerConfig#MAX_OUTBOX_BYTES} of replies not yet taken by
+ * the client is neither read nor served until they have gone out.
+ */
+public class NioServer {
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final int LINES_PER_TURN = 32;
+
+    private final int port;
+    private final Reactor[] reactors;
+    private final WorkerPool workers;
+    private final ConnectionLimiter limiter;
+    private final AtomicInteger nextReactor = new AtomicInteger();
+
+    public NioServer(int port, int ioThreads, WorkerPool workers, ConnectionLimiter limiter) throws IOException {
+        this.port = port;
+        this.workers = workers;
+        this.limiter = limiter;
+        this.reactors = new Reactor[Math.max(1, ioThreads)];
+        for (int i = 0; i < reactors.length; i++) reactors[i] = new Reactor(i);
+    }
+
+    public void start() throws IOException {
+        for (Reactor r : reactors) r.start();
+        try (ServerSocketChannel ssc = ServerSocketChannel.open()) {
+            ssc.bind(new InetSocketAddress(port));
+            System.out.println("Server started on port " + port + " (nio, " + reactors.length + " io threads)");
+            while (true) {
+                SocketChannel ch = ssc.accept();
+                System.out.println("Accepted " + ch.getRemoteAddress());
+                InetAddress addr = ch.socket().getInetAddress();
+                if (!limiter.tryAcquire(addr)) {
+                    MainServer.rejectBusy(ch.socket());
+                    continue;
+                }
+                ch.configureBlocking(false);
+                ch.socket().setTcpNoDelay(true);
+                Reactor r = reactors[Math.floorMod(nextReactor.getAndIncrement(), reactors.length)];
+                r.register(new Connection(ch, r, addr));
+            }
+        }
+    }
+
+    /**
+     * One selector thread. Other threads never touch the selector directly; they queue a task
+     * and wake it up.
+     */
+    private final class Reactor extends Thread {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuf = ByteBuffer.allocateDirect(16 * 1024);
+
+        Reactor(int index) throws IOException {
+            super("nio-io-" + index);
+            setDaemon(true);
+            this.selector = Selector.open();
+        }
+
+        void register(Connection c) {
+            execute(() -> {
+                try {
+                    c.key = c.channel.register(selector, SelectionKey.OP_READ, c);
+                    c.handler.greet();
+                    c.handler.flush();
+                } catch (IOException e) {
+                    c.close();
+                }
+            });
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) task.run();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        Connection c = (Connection) key.attachment();
+                        if (!key.isValid()) {
+                            c.close();
+                            continue;
+                        }
+                        try {
+                            if (key.isReadable()) c.onReadable(readBuf);
+                            if (key.isValid() && key.isWritable()) c.onWritable();
+                        } catch (IOException e) {
+                            System.err.println("Client connection closed: " + e.getMessage());
+                            c.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Selector error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-socket state: partial-line buffer, queued lines waiting for a worker, and pending output.
+     * Pushed events also schedule a worker turn, which writes them after any queued requests.
+     */
+    private final class Connection {
+        final SocketChannel channel;
+        final Reactor reactor;
+        final ClientHandler handler;
+        final InetAddress addr;
+        SelectionKey key;
+
+        // Bytes received but not yet forming a complete line or frame.
+        private byte[] pending = new byte[256];
+        private int pendingLen;
+
+        private final Queue<Object> inbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger outboxBytes = new AtomicInteger();
+        private volatile boolean closeAfterFlush;
+        private volatile boolean closed;
+
+        Connection(SocketChannel channel, Reactor reactor, InetAddress addr) {
+            this.channel = channel;
+            this.reactor = reactor;
+            this.addr = addr;
+            this.handler = new ClientHandler(new ChannelOutputStream(this));
+            handler.setWakeup(this::schedule);
+        }
+
+        /** Runs on the reactor thread. */
+        void onReadable(ByteBuffer buf) throws IOException {
+            buf.clear();
+            int n = channel.read(buf);
+            if (n < 0) {
+                close();
+                return;
+            }
+            buf.flip();
+            boolean got = handler.isBinary() ? readFrames(buf) : readLines(buf);
+            if (got) schedule();
+        }
+
+        private boolean readLines(ByteBuffer buf) throws IOException {
+            boolean gotLine = false;
+            while (buf.hasRemaining()) {
+                byte b = buf.get();
+                if (b == '\n') {
+                    int len = pendingLen > 0 && pending[pendingLen - 1] == '\r' ? pendingLen - 1 : pendingLen;
+                    inbox.add(new String(pending, 0, len, StandardCharsets.UTF_8));
+                    pendingLen = 0;
+                    gotLine = true;
+                } else {
+                    if (pendingLen >= MAX_LINE_BYTES) throw new IOException("Line too long");
+                    ensurePending(1);
+                    pending[pendingLen++] = b;
+                }
+            }
+            return gotLine;
+        }
+
+        private boolean readFrames(ByteBuffer buf) throws IOException {
+            int n = buf.remaining();
+            ensurePending(n);
+            buf.get(pending, pendingLen, n);
+            pendingLen += n;
+
+            boolean gotFrame = false;
+            int pos = 0;
+            int len;
+            while ((len = WireCodec.peekLength(pending, pos, pendingLen - pos)) >= 0 && pendingLen - pos - 4 >= len) {
+                inbox.add(WireCodec.decode(pending, pos + 4, len));
+                pos += 4 + len;
+                gotFrame = true;
+            }
+            if (pos > 0) {
+                System.arraycopy(pending, pos, pending, 0, pendingLen - pos);
+                pendingLen -= pos;
+            }
+            return gotFrame;
+        }
+
+        private void ensurePending(int extra) {
+            if (pendingLen + extra <= pending.length) return;
+            byte[] grown = new byte[Math.max(pending.length * 2, pendingLen + extra)];
+            System.arraycopy(pending, 0, grown, 0, pendingLen);
+            pending = grown;
+        }
+
+        /** Runs on the reactor thread. */
+        void onWritable() throws IOException {
+            ByteBuffer head;
+            while ((head = outbox.peek()) != null) {
+                outboxBytes.addAndGet(-channel.write(head));
+                if (head.hasRemaining()) break;
+                outbox.poll();
+            }
+            boolean done = outbox.isEmpty();
+            if (done && closeAfterFlush) {
+                close();
+                return;
+            }
+            key.interestOps(interestOps(!done));
+            // Work held back while the client was behind may go ahead again.
+            if (!congested() && (!inbox.isEmpty() || handler.hasEvents())) schedule();
+        }
+
+        private boolean congested() {
+            return outboxBytes.get() > ServerConfig.MAX_OUTBOX_BYTES;
+        }
+
+        private int interestOps(boolean writing) {
+            return (congested() ? 0 : SelectionKey.OP_READ) | (writing ? SelectionKey.OP_WRITE : 0);
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            if (workers.tryExecute(this::drain)) return;
+            // Saturated: answer what is queued right now rather than letting it pile up, and
+            // write waiting events here, as no later turn may come to write them.
+            Object request;
+            while ((request = inbox.poll()) != null) handler.rejectBusy(request);
+            if (!closed && !closeAfterFlush && !congested()) handler.writeEvents();
+            handler.flush();
+            scheduled.set(false);
+            if (!inbox.isEmpty() || (!congested() && handler.hasEvents())) schedule();
+        }
+
+        /**
+         * Runs on a worker thread; at most one at a time per connection. Replies to all lines
+         * handled in one turn go out as a single write.
+         */
+        private void drain() {
+            try {
+                Object request;
+                int done = 0;
+                while (!closed && !closeAfterFlush && !congested() && done++ < LINES_PER_TURN
+                        && (request = inbox.poll()) != null) {
+                    boolean keepOpen = request instanceof String
+                            ? handler.handleLine((String) request)
+                            : handler.handleFrame(castFrame(request));
+                    if (!keepOpen) {
+                        closeAfterFlush = true;
+                        inbox.clear();
+                    }
+                }
+                if (!closed && !closeAfterFlush && !congested()) handler.writeEvents();
+            } finally {
+                handler.flush();
+                scheduled.set(false);
+            }
+            if (closeAfterFlush) reactor.execute(this::requestWrite);
+            else if (!congested() && (!inbox.isEmpty() || handler.hasEvents())) schedule();
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Object> castFrame(Object request) {
+            return (List<Object>) request;
+        }
+
+        void enqueue(ByteBuffer data) {
+            if (closed) return;
+            outboxBytes.addAndGet(data.remaining());
+            outbox.add(data);
+            reactor.execute(this::requestWrite);
+        }
+
+        /** Runs on the reactor thread. */
+        private void requestWrite() {
+            if (key == null || !key.isValid()) return;
+            key.interestOps(interestOps(true));
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            limiter.release(addr);
+            handler.detach();
+            inbox.clear();
+            outbox.clear();
+            if (key != null) key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Collects bytes written by the handler and hands them to the connection on flush.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+        private final Connection conn;
+        private byte[] buf = new byte[512];
+        private int len;
+
+        ChannelOutputStream(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            buf[len++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int n) {
+            ensure(n);
+            System.arraycopy(b, off, buf, len, n);
+            len += n;
+        }
+
+        @Override
+        public void flush() {
+            if (len == 0) return;
+            byte[] copy = new byte[len];
+            System.arraycopy(buf, 0, copy, 0, len);
+            len = 0;
+            conn.enqueue(ByteBuffer.wrap(copy));
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+
+        private void ensure(int extra) {
+            if (len + extra <= buf.length) return;
+            byte[] grown = new byte[Math.max(buf.length * 2, len + extra)];
+            System.arraycopy(buf, 0, grown, 0, len);
+            buf = grown;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package app.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs password hashing on its own small pool so a burst of logins cannot occupy every core.
+ * Requests are served first come, first served from a bounded queue; when it is full the caller
+ * gets a {@link RejectedExecutionException}, answered as {@code ERROR ServerBusy}.
+ * <p>
+ * The caller waits for its hash, so the number of callers waiting at once is capped as well
+ * ({@link ServerConfig#HASH_MAX_CALLERS}). In nio mode every waiting caller is a worker thread
+ * taken from all other commands, and a login storm could otherwise take every one of them.
+ */
+public final class PasswordHasher {
+    private static final PasswordHasher SHARED =
+            new PasswordHasher(ServerConfig.HASH_THREADS, ServerConfig.HASH_QUEUE, ServerConfig.HASH_MAX_CALLERS);
+
+    private final ThreadPoolExecutor pool;
+    private final int queueCapacity;
+    private final int maxCallers;
+    private final Semaphore callers;
+
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong workNanos = new AtomicLong();
+
+    PasswordHasher(int threads, int queueCapacity, int maxCallers) {
+        this.queueCapacity = queueCapacity;
+        this.maxCallers = maxCallers;
+        this.callers = new Semaphore(maxCallers);
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static PasswordHasher shared() {
+        return SHARED;
+    }
+
+    /**
+     * Hashes on the hash pool and waits for the result.
+     *
+     * @throws RejectedExecutionException if too many callers are waiting already or the queue is full
+     */
+    public String hash(String password, String saltBase64) throws Exception {
+        if (!callers.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Too many password hashes in progress");
+        }
+        try {
+            return hashOnPool(password, saltBase64);
+        } finally {
+            callers.release();
+        }
+    }
+
+    private String hashOnPool(String password, String saltBase64) throws Exception {
+        long queued = System.nanoTime();
+        Future<String> f;
+        try {
+            f = pool.submit(() -> {
+                long start = System.nanoTime();
+                recordWait(start - queued);
+                try {
+                    return Utils.hashPassword(password, saltBase64);
+                } finally {
+                    workNanos.addAndGet(System.nanoTime() - start);
+                    hashed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)) {
+            // retry
+        }
+    }
+
+    public String stats() {
+        long n = hashed.get();
+        return "hash threads=" + pool.getPoolSize() + " queued=" + pool.getQueue().size() + "/" + queueCapacity
+                + " callers=" + (maxCallers - callers.availablePermits()) + "/" + maxCallers
+                + " done=" + n + " rejected=" + rejected.get()
+                + " avgWaitMs=" + (n == 0 ? 0 : waitNanos.get() / n / 1_000_000)
+                + " maxWaitMs=" + maxWaitNanos.get() / 1_000_000
+                + " avgHashMs=" + (n == 0 ? 0 : workNanos.get() / n / 1_000_000);
+    }
+}
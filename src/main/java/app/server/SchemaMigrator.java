@@ -0,0 +1,83 @@
+package app.server;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Applies the numbered scripts under {@code migrations/} that an existing database has not seen
+ * yet, recording each in {@code schema_migrations}. Scripts run in order, one transaction each.
+ */
+public class SchemaMigrator {
+    // Append only: the position in this list is the schema version.
+    private static final String[] MIGRATIONS = {
+            "001_indexes.sql",
+            "002_change_seq.sql",
+            "003_employee_id.sql",
+    };
+
+    private final Connection c;
+
+    public SchemaMigrator(Connection c) {
+        this.c = c;
+    }
+
+    public void migrate() throws Exception {
+        try (Statement st = c.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS schema_migrations ("
+                    + "version INTEGER PRIMARY KEY, script TEXT NOT NULL, applied_at TEXT NOT NULL)");
+        }
+        int current = currentVersion();
+        for (int v = current + 1; v <= MIGRATIONS.length; v++) {
+            apply(v, MIGRATIONS[v - 1]);
+        }
+    }
+
+    public int currentVersion() throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_migrations")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void apply(int version, String script) throws Exception {
+        String sql;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("migrations/" + script)) {
+            if (in == null) throw new IllegalStateException("Missing migration " + script);
+            java.util.Scanner s = new java.util.Scanner(in, "UTF-8").useDelimiter("\\A");
+            sql = s.hasNext() ? s.next() : "";
+        }
+        boolean auto = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (Statement st = c.createStatement()) {
+            for (String stmt : stripComments(sql).split(";")) {
+                String t = stmt.trim();
+                if (!t.isEmpty()) st.executeUpdate(t);
+            }
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO schema_migrations (version, script, applied_at) VALUES (?, ?, datetime('now'))")) {
+                ps.setInt(1, version);
+                ps.setString(2, script);
+                ps.executeUpdate();
+            }
+            c.commit();
+            System.out.println("Applied migration " + version + " (" + script + ")");
+        } catch (Exception e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(auto);
+        }
+    }
+
+    private static String stripComments(String sql) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : sql.split("\n")) {
+            if (!line.trim().startsWith("--")) sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+}
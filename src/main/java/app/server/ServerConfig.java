@@ -0,0 +1,99 @@
+package app.server;
+
+/**
+ * Server tuning knobs, read once from system properties,
+ * e.g. {@code java -Dapp.server.mode=nio -jar AppointmentSystem-1.0.jar}.
+ */
+public final class ServerConfig {
+    /** JDBC url of the SQLite database (also used by MyBatis). */
+    public static final String DB_URL = System.getProperty("app.db.url", "jdbc:sqlite:appointments.db");
+
+    /** "default" (rollback journal, inline writes) or "wal" (WAL, single writer thread, pooled readers). */
+    public static final String DB_MODE = System.getProperty("app.db.mode", "default");
+
+    /** Pooled read connections. */
+    public static final int DB_READERS = Integer.getInteger("app.db.readers", 8);
+
+    /** Milliseconds SQLite waits on a locked database before failing with SQLITE_BUSY. */
+    public static final int DB_BUSY_TIMEOUT = Integer.getInteger("app.db.busyTimeout", 5000);
+
+    /** Mapped statements taking at least this many milliseconds are logged; negative disables the log. */
+    public static final int DB_SLOW_QUERY_MS = Integer.getInteger("app.db.slowQueryMs", 100);
+
+    /** Commit writes in groups on one thread instead of one transaction per write. */
+    public static final boolean GROUP_COMMIT = Boolean.getBoolean("app.db.groupCommit");
+
+    /** Most writes committed in one group. */
+    public static final int GROUP_COMMIT_BATCH = Integer.getInteger("app.db.batchSize", 64);
+
+    /** Milliseconds the group-commit thread waits for more writes before committing. */
+    public static final int GROUP_COMMIT_LINGER_MS = Integer.getInteger("app.db.lingerMs", 2);
+
+    /** Users kept in the in-memory user directory cache. */
+    public static final int USER_CACHE_SIZE = Integer.getInteger("app.cache.users", 10000);
+
+    /** Threads hashing passwords for LOGIN, REGISTER and admin updates. */
+    public static final int HASH_THREADS = Integer.getInteger("app.hash.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    /** Hash requests waiting for a hash thread before further ones are refused as busy. */
+    public static final int HASH_QUEUE = Integer.getInteger("app.hash.queueCapacity", 128);
+
+    /** Live session tokens kept for RESUME; the least recently used is dropped beyond this. */
+    public static final int SESSION_MAX = Integer.getInteger("app.session.max", 10000);
+
+    /** Minutes a session token stays valid after its last use. */
+    public static final int SESSION_TTL_MINUTES = Integer.getInteger("app.session.ttlMinutes", 30);
+
+    /** "blocking" (one thread per connection) or "nio" (selector-based). */
+    public static final String MODE = System.getProperty("app.server.mode", "blocking");
+
+    /** Selector threads in nio mode. */
+    public static final int IO_THREADS = Integer.getInteger("app.server.ioThreads", 2);
+
+    /** Threads executing commands in nio mode. */
+    public static final int WORKERS = Integer.getInteger("app.server.workers",
+            Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * Reply bytes queued for one nio connection before it is no longer read or served until the
+     * client has taken them.
+     */
+    public static final int MAX_OUTBOX_BYTES = Integer.getInteger("app.server.maxOutboxBytes", 1 << 20);
+
+    /** Threads serving connections in blocking mode, i.e. the most clients served at once. */
+    public static final int MAX_CONNECTIONS = Integer.getInteger("app.server.maxConnections", 500);
+
+    /**
+     * Commands waiting for a free worker in nio mode, and writes waiting for the group-commit
+     * thread. Blocking mode queues no connections.
+     */
+    public static final int QUEUE_CAPACITY = Integer.getInteger("app.server.queueCapacity", 256);
+
+    /**
+     * Commands waiting on a password hash at once; beyond this they are refused as busy. In nio
+     * mode each one holds a worker, so by default at most half of the workers may wait.
+     */
+    public static final int HASH_MAX_CALLERS = Integer.getInteger("app.hash.maxCallers",
+            isNio() ? Math.max(1, WORKERS / 2) : HASH_THREADS + HASH_QUEUE);
+
+    /** Simultaneous connections allowed from one remote address. */
+    public static final int MAX_CONN_PER_IP = Integer.getInteger("app.server.maxConnPerIp", 64);
+
+    /** Seconds between pool statistics lines on stdout; 0 disables them. */
+    public static final int STATS_INTERVAL = Integer.getInteger("app.server.statsInterval", 60);
+
+    /** File rewritten with per-command statistics every stats interval; empty (the default) disables it. */
+    public static final String STATS_FILE = System.getProperty("app.server.statsFile", "");
+
+    private ServerConfig() {
+    }
+
+    public static boolean isWal() {
+        return "wal".equalsIgnoreCase(DB_MODE);
+    }
+
+    public static boolean isNio() {
+        return "nio".equalsIgnoreCase(MODE);
+    }
+}
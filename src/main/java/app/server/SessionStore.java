@@ -0,0 +1,109 @@
+package app.server;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Session tokens handed out by LOGIN and accepted by RESUME, so a client that reconnects does not
+ * have to send its password (and pay for hashing it) again. Tokens are random, held only in
+ * memory, expire {@link ServerConfig#SESSION_TTL_MINUTES} after their last use, and the least
+ * recently used one is dropped once {@link ServerConfig#SESSION_MAX} are live.
+ */
+public final class SessionStore {
+    private static final SessionStore SHARED =
+            new SessionStore(ServerConfig.SESSION_MAX, ServerConfig.SESSION_TTL_MINUTES * 60_000L);
+    private static final long PURGE_INTERVAL_MS = 60_000L;
+
+    private final SecureRandom random = new SecureRandom();
+    private final int capacity;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Session> sessions;
+    private long nextPurge;
+
+    SessionStore(int capacity, long ttlMillis) {
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.sessions = new LinkedHashMap<String, Session>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > SessionStore.this.capacity;
+            }
+        };
+    }
+
+    public static SessionStore shared() {
+        return SHARED;
+    }
+
+    public static final class Session {
+        public final int userId;
+        public final String username;
+        public final String role;
+        private long expiresAt;
+
+        Session(int userId, String username, String role) {
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+        }
+    }
+
+    /**
+     * Creates a session for a user who has just authenticated and returns its token.
+     */
+    public String issue(int userId, String username, String role) {
+        byte[] b = new byte[24];
+        random.nextBytes(b);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+        Session s = new Session(userId, username, role);
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now >= nextPurge) {
+                purgeExpired(now);
+                nextPurge = now + PURGE_INTERVAL_MS;
+            }
+            s.expiresAt = now + ttlMillis;
+            sessions.put(token, s);
+        }
+        return token;
+    }
+
+    /**
+     * Returns the session for {@code token} and extends its lifetime, or null if it is unknown or
+     * has expired.
+     */
+    public synchronized Session resume(String token) {
+        Session s = sessions.get(token);
+        if (s == null) return null;
+        long now = System.currentTimeMillis();
+        if (s.expiresAt < now) {
+            sessions.remove(token);
+            return null;
+        }
+        s.expiresAt = now + ttlMillis;
+        return s;
+    }
+
+    /**
+     * Ends every session of a user, e.g. after an admin changed or deleted the account.
+     */
+    public synchronized void revokeUser(int userId) {
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().userId == userId) it.remove();
+        }
+    }
+
+    // Expired sessions are swept at most once a minute, from issue(), so abandoned tokens do not
+    // sit in the map until LRU eviction reaches them.
+    private void purgeExpired(long now) {
+        sessions.values().removeIf(s -> s.expiresAt < now);
+    }
+
+    public synchronized String stats() {
+        return "sessions=" + sessions.size() + "/" + capacity;
+    }
+}
@@ -0,0 +1,128 @@
+package app.server;
+
+import app.common.models.Appointment;
+import app.server.mappers.AppointmentMapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory occupancy of every employee's days, used to reserve a time range before the
+ * appointment is written to SQLite. Each (employee, date) owns a bitset with one bit per minute,
+ * so overlap checks are exact for any HH:mm range. Claims are atomic under a striped lock.
+ */
+public final class SlotIndex {
+    private static final SlotIndex SHARED = new SlotIndex();
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int WORDS = (MINUTES_PER_DAY + 63) / 64;
+    private static final int STRIPES = 64;
+
+    private final ConcurrentHashMap<Long, long[]> days = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[STRIPES];
+
+    SlotIndex() {
+        for (int i = 0; i < STRIPES; i++) locks[i] = new Object();
+    }
+
+    public static SlotIndex shared() {
+        return SHARED;
+    }
+
+    /**
+     * Reloads the index from every non-cancelled appointment.
+     */
+    public void rebuild() {
+        days.clear();
+        int loaded = 0;
+        try (SqlSession session = MyBatisUtil.openSession();
+             Cursor<Appointment> rows = session.getMapper(AppointmentMapper.class).listActive()) {
+            for (Appointment a : rows) {
+                try {
+                    mark(a.getEmployeeId(), LocalDate.parse(a.getDate()),
+                            minuteOf(a.getStartTime()), minuteOf(a.getEndTime()), true);
+                    loaded++;
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping malformed appointment " + a.getId() + ": " + e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Slot index rebuild failed: " + e.getMessage());
+        }
+        System.out.println("Slot index loaded " + loaded + " appointments");
+    }
+
+    /**
+     * Reserves {@code [start, end)} if no minute of it is taken. Returns false on any overlap.
+     */
+    public boolean tryClaim(int employeeId, LocalDate date, LocalTime start, LocalTime end) {
+        return mark(employeeId, date, minuteOf(start), minuteOf(end), false);
+    }
+
+    /**
+     * Frees a range reserved by {@link #tryClaim}, e.g. when the insert that followed it failed.
+     */
+    public void release(int employeeId, LocalDate date, LocalTime start, LocalTime end) {
+        long key = key(employeeId, date);
+        int from = minuteOf(start), to = minuteOf(end);
+        synchronized (lockFor(key)) {
+            long[] bits = days.get(key);
+            if (bits == null) return;
+            for (int m = from; m < to; m++) bits[m >>> 6] &= ~(1L << m);
+        }
+    }
+
+    /**
+     * Bitmask of the {@code count} consecutive slots of {@code slotMinutes} starting at
+     * {@code firstMinute}; bit i is set when slot i is completely free. One lock, one pass.
+     */
+    public int freeMask(int employeeId, LocalDate date, int firstMinute, int slotMinutes, int count) {
+        long key = key(employeeId, date);
+        int mask = 0;
+        synchronized (lockFor(key)) {
+            long[] bits = days.get(key);
+            for (int i = 0; i < count; i++) {
+                int from = firstMinute + i * slotMinutes;
+                if (bits == null || !anySet(bits, from, from + slotMinutes)) mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private boolean mark(int employeeId, LocalDate date, int from, int to, boolean force) {
+        if (from < 0 || to > MINUTES_PER_DAY || from >= to) throw new IllegalArgumentException("Bad range");
+        long key = key(employeeId, date);
+        synchronized (lockFor(key)) {
+            long[] bits = days.computeIfAbsent(key, k -> new long[WORDS]);
+            if (!force && anySet(bits, from, to)) return false;
+            for (int m = from; m < to; m++) bits[m >>> 6] |= 1L << m;
+            return true;
+        }
+    }
+
+    private static boolean anySet(long[] bits, int from, int to) {
+        for (int m = from; m < to; m++) {
+            if ((bits[m >>> 6] & (1L << m)) != 0) return true;
+        }
+        return false;
+    }
+
+    private Object lockFor(long key) {
+        return locks[(int) ((key ^ (key >>> 32)) & (STRIPES - 1))];
+    }
+
+    private static long key(int employeeId, LocalDate date) {
+        return ((long) employeeId << 32) | (date.toEpochDay() & 0xffffffffL);
+    }
+
+    static int minuteOf(LocalTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    private static int minuteOf(String hhmm) {
+        return minuteOf(LocalTime.parse(hhmm));
+    }
+}
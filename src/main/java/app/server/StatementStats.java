@@ -0,0 +1,60 @@
+package app.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate timings per mapped statement id, fed by {@link StatementTimer}. {@link #top(int)}
+ * ranks statements by the total time spent in them, so one that grows slower with the table, or
+ * a cheap one called far too often, rises to the top. Recording takes no locks.
+ */
+public final class StatementStats {
+    /** Fields of a {@link #top(int)} row; latencies are in microseconds, totals in milliseconds. */
+    public static final String[] COLUMNS = {"statement", "calls", "errors", "rows", "totalMs", "avgUs", "p99Us",
+            "maxUs"};
+
+    private static final StatementStats SHARED = new StatementStats();
+
+    private final Map<String, Entry> byStatement = new ConcurrentHashMap<>();
+
+    public static StatementStats shared() {
+        return SHARED;
+    }
+
+    private static final class Entry {
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LatencyHistogram time = new LatencyHistogram();
+    }
+
+    /**
+     * @param rows rows returned or changed, negative when not known
+     */
+    void record(String statement, long nanos, int rows, boolean failed) {
+        Entry e = byStatement.computeIfAbsent(statement, k -> new Entry());
+        e.time.recordNanos(nanos);
+        if (rows > 0) e.rows.add(rows);
+        if (failed) e.errors.increment();
+    }
+
+    /**
+     * The {@code n} statements with the most total time, most first, with the fields in
+     * {@link #COLUMNS}.
+     */
+    public List<Object[]> top(int n) {
+        // Totals keep growing while we sort, so rank by a copy taken once.
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, Entry> me : byStatement.entrySet()) {
+            Entry e = me.getValue();
+            rows.add(new Object[]{me.getKey(), e.time.count(), e.errors.sum(), e.rows.sum(),
+                    e.time.sumMicros() / 1000, e.time.meanMicros(), e.time.percentileMicros(99),
+                    e.time.maxMicros()});
+        }
+        rows.sort(Comparator.comparingLong((Object[] r) -> (Long) r[4]).reversed());
+        return rows.subList(0, Math.min(n, rows.size()));
+    }
+}
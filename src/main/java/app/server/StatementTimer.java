@@ -0,0 +1,120 @@
+package app.server;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyBatis plugin, registered in {@code mybatis-config.xml}, that times every mapped statement.
+ * The time is charged to the command running on the calling thread ({@link CommandStats}) and
+ * added to the statement's totals ({@link StatementStats}), and a {@link JfrEvents.Sql} is
+ * emitted while a flight recording is running. A statement slower than the {@code slowQueryMs}
+ * property is logged with its SQL, bound parameters and row count.
+ * <p>
+ * For a cursor query only opening the cursor is timed; rows fetched while iterating are not.
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class StatementTimer implements Interceptor {
+    // Parameters never written to the log.
+    private static final Set<String> SECRET_PARAMS = new HashSet<>(Arrays.asList("hash", "salt", "password"));
+
+    private long slowNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Override
+    public void setProperties(Properties properties) {
+        String ms = properties.getProperty("slowQueryMs");
+        if (ms != null) slowNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(ms.trim()));
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object event = JfrEvents.beginSql();
+        long start = System.nanoTime();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            CommandStats.addDbNanos(elapsed);
+            MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+            int rows = rows(result);
+            StatementStats.shared().record(ms.getId(), elapsed, rows, failed);
+            if (slowNanos >= 0 && elapsed >= slowNanos) logSlow(invocation, elapsed, rows, failed);
+            JfrEvents.endSql(event, ms.getId(), ms.getSqlCommandType().name(), rows);
+        }
+    }
+
+    /**
+     * Rows a statement returned or changed, or -1 when the result does not tell (a cursor, a
+     * batched update that has not run yet, or a failure).
+     */
+    static int rows(Object result) {
+        if (result instanceof List) return ((List<?>) result).size();
+        if (result instanceof Integer && (Integer) result >= 0) return (Integer) result;
+        return -1;
+    }
+
+    private static void logSlow(Invocation invocation, long nanos, int rows, boolean failed) {
+        Object[] args = invocation.getArgs();
+        MappedStatement ms = (MappedStatement) args[0];
+        Object param = args[1];
+        StringBuilder sb = new StringBuilder("[slow-sql] ").append(ms.getId())
+                .append(' ').append(TimeUnit.NANOSECONDS.toMillis(nanos)).append(" ms")
+                .append(failed ? " FAILED" : rows < 0 ? " rows=?" : " rows=" + rows);
+        try {
+            BoundSql sql = args.length == 6 ? (BoundSql) args[5] : ms.getBoundSql(param);
+            sb.append(" params=[");
+            List<ParameterMapping> mappings = sql.getParameterMappings();
+            for (int i = 0; i < mappings.size(); i++) {
+                String name = mappings.get(i).getProperty();
+                if (i > 0) sb.append(", ");
+                sb.append(name).append('=')
+                        .append(SECRET_PARAMS.contains(name) ? "***" : paramValue(ms, sql, param, name));
+            }
+            sb.append("] sql=").append(sql.getSql().replaceAll("\\s+", " ").trim());
+        } catch (RuntimeException e) {
+            sb.append(" (parameters unavailable: ").append(e.getMessage()).append(')');
+        }
+        System.out.println(sb);
+    }
+
+    /**
+     * Resolves a bound parameter the way MyBatis' parameter handler does.
+     */
+    private static Object paramValue(MappedStatement ms, BoundSql sql, Object param, String name) {
+        if (sql.hasAdditionalParameter(name)) return sql.getAdditionalParameter(name);
+        if (param == null) return null;
+        Configuration conf = ms.getConfiguration();
+        if (conf.getTypeHandlerRegistry().hasTypeHandler(param.getClass())) return param;
+        return conf.newMetaObject(param).getValue(name);
+    }
+}
@@ -0,0 +1,55 @@
+package app.server;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Prepends the current request tag (e.g. {@code "#12 "}) to every line written while a tagged
+ * command is being handled, so handlers can keep calling {@code out.println} unchanged.
+ */
+class TaggedWriter extends Writer {
+    private final Writer target;
+    private String prefix;
+    private boolean atLineStart = true;
+
+    TaggedWriter(Writer target) {
+        this.target = target;
+    }
+
+    void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (prefix == null) {
+            target.write(cbuf, off, len);
+            atLineStart = len > 0 ? cbuf[off + len - 1] == '\n' : atLineStart;
+            return;
+        }
+        int end = off + len;
+        int start = off;
+        for (int i = off; i < end; i++) {
+            if (atLineStart) {
+                target.write(prefix);
+                atLineStart = false;
+            }
+            if (cbuf[i] == '\n') {
+                target.write(cbuf, start, i + 1 - start);
+                start = i + 1;
+                atLineStart = true;
+            }
+        }
+        if (start < end) target.write(cbuf, start, end - start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        target.close();
+    }
+}
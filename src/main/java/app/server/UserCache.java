@@ -0,0 +1,133 @@
+package app.server;
+
+import app.common.models.User;
+import app.server.mappers.UserMapper;
+import org.apache.ibatis.session.SqlSession;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the users table, looked up by id or username, bounded with LRU
+ * eviction. Writers must call {@link #invalidate} after changing a user; a load that raced with
+ * an invalidation is not stored. Callers get copies, so they may modify what they receive.
+ */
+public final class UserCache {
+    private static final UserCache SHARED = new UserCache(ServerConfig.USER_CACHE_SIZE);
+
+    private final int capacity;
+    private final LinkedHashMap<Integer, User> byId;
+    private final Map<String, Integer> idByName = new HashMap<>();
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    UserCache(int capacity) {
+        this.capacity = capacity;
+        this.byId = new LinkedHashMap<Integer, User>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, User> eldest) {
+                if (size() <= UserCache.this.capacity) return false;
+                idByName.remove(eldest.getValue().getUsername());
+                return true;
+            }
+        };
+    }
+
+    public static UserCache shared() {
+        return SHARED;
+    }
+
+    public User findById(int id) {
+        long gen;
+        synchronized (this) {
+            User u = byId.get(id);
+            if (u != null) {
+                hits.incrementAndGet();
+                return copy(u);
+            }
+            gen = generation;
+        }
+        misses.incrementAndGet();
+        User loaded;
+        try (SqlSession session = MyBatisUtil.openSession()) {
+            loaded = session.getMapper(UserMapper.class).findById(id);
+        }
+        return store(loaded, gen);
+    }
+
+    public User findByUsername(String username) {
+        long gen;
+        synchronized (this) {
+            Integer id = idByName.get(username);
+            User u = id == null ? null : byId.get(id);
+            if (u != null) {
+                hits.incrementAndGet();
+                return copy(u);
+            }
+            gen = generation;
+        }
+        misses.incrementAndGet();
+        User loaded;
+        try (SqlSession session = MyBatisUtil.openSession()) {
+            loaded = session.getMapper(UserMapper.class).findByUsername(username);
+        }
+        return store(loaded, gen);
+    }
+
+    public String usernameById(int id) {
+        User u = findById(id);
+        return u == null ? null : u.getUsername();
+    }
+
+    public synchronized void invalidate(int id) {
+        generation++;
+        User u = byId.remove(id);
+        if (u != null) idByName.remove(u.getUsername());
+    }
+
+    public synchronized void invalidate(String username) {
+        generation++;
+        Integer id = idByName.remove(username);
+        if (id != null) byId.remove(id);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        byId.clear();
+        idByName.clear();
+    }
+
+    public String stats() {
+        int size;
+        synchronized (this) {
+            size = byId.size();
+        }
+        return "userCache size=" + size + "/" + capacity + " hits=" + hits.get() + " misses=" + misses.get();
+    }
+
+    private User store(User loaded, long gen) {
+        if (loaded == null) return null;
+        synchronized (this) {
+            if (gen == generation) {
+                User old = byId.put(loaded.getId(), loaded);
+                if (old != null) idByName.remove(old.getUsername());
+                idByName.put(loaded.getUsername(), loaded.getId());
+            }
+        }
+        return copy(loaded);
+    }
+
+    private static User copy(User u) {
+        User c = new User();
+        c.setId(u.getId());
+        c.setUsername(u.getUsername());
+        c.setHash(u.getHash());
+        c.setSalt(u.getSalt());
+        c.setRole(u.getRole());
+        return c;
+    }
+}
@@ -1,5 +1,6 @@
 package app.server;
 
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Base64;
 import javax.crypto.SecretKeyFactory;
@@ -9,18 +10,34 @@ public class Utils {
     private static final SecureRandom RAND = new SecureRandom();
     public static final String PEPPER = "ChangeThisPepperForProd";
 
+    // SecretKeyFactory lookups go through the provider list each time; each thread keeps its own.
+    private static final ThreadLocal<SecretKeyFactory> PBKDF2 = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     public static String randomSaltBase64(int bytes) {
         byte[] b = new byte[bytes];
         RAND.nextBytes(b);
         return Base64.getEncoder().encodeToString(b);
     }
 
+    private static final int PBKDF2_ITERATIONS = 65536;
+
     public static String hashPassword(String password, String saltBase64) throws Exception {
-        byte[] salt = Base64.getDecoder().decode(saltBase64);
-        char[] chars = (password + PEPPER).toCharArray();
-        PBEKeySpec spec = new PBEKeySpec(chars, salt, 65536, 256);
-        SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        byte[] hash = skf.generateSecret(spec).getEncoded();
-        return Base64.getEncoder().encodeToString(hash);
+        Object event = JfrEvents.beginPasswordHash();
+        try {
+            byte[] salt = Base64.getDecoder().decode(saltBase64);
+            char[] chars = (password + PEPPER).toCharArray();
+            PBEKeySpec spec = new PBEKeySpec(chars, salt, PBKDF2_ITERATIONS, 256);
+            byte[] hash = PBKDF2.get().generateSecret(spec).getEncoded();
+            spec.clearPassword();
+            return Base64.getEncoder().encodeToString(hash);
+        } finally {
+            JfrEvents.endPasswordHash(event, PBKDF2_ITERATIONS);
+        }
     }
 }
@@ -0,0 +1,64 @@
+package app.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size thread pool with a bounded queue. Work that does not fit is refused instead of
+ * spawning more threads, so callers can answer {@code ERROR ServerBusy} right away. With a
+ * capacity of 0 nothing waits: work is accepted only if a thread is idle.
+ */
+public class WorkerPool extends ThreadPoolExecutor {
+    private final String name;
+    private final int queueCapacity;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public WorkerPool(String name, int threads, int queueCapacity) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity),
+                daemonThreads(name), new ThreadPoolExecutor.AbortPolicy());
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+    }
+
+    private static java.util.concurrent.ThreadFactory daemonThreads(String name) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Queues the task, or returns false (and counts the rejection) when the pool is saturated.
+     */
+    public boolean tryExecute(Runnable task) {
+        try {
+            execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    public int queueDepth() {
+        return getQueue().size();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    public String stats() {
+        return name + " threads=" + getPoolSize() + " active=" + getActiveCount()
+                + " queued=" + queueDepth() + "/" + queueCapacity
+                + " completed=" + getCompletedTaskCount() + " rejected=" + rejectedCount();
+    }
+}
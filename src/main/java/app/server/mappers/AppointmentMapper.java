@@ -2,6 +2,7 @@ package app.server.mappers;
 
 import app.common.models.Appointment;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.Map;
 
@@ -11,6 +12,26 @@ public interface AppointmentMapper {
 
     java.util.List<Appointment> listByEmployee(int employeeId);
 
+    // Same rows with the counterpart's username joined in (otherName), avoiding a lookup per row
+    java.util.List<Appointment> listByUserWithNames(int userId);
+
+    java.util.List<Appointment> listByEmployeeWithNames(int employeeId);
+
+    // Keyset pages, with otherName joined in: params ownerId, afterId, fetchSize
+    Cursor<Appointment> pageByUser(Map<String, Object> params);
+
+    Cursor<Appointment> pageByEmployee(Map<String, Object> params);
+
+    // Rows changed after sinceSeq, oldest change first, with otherName and changeSeq: params ownerId, sinceSeq
+    java.util.List<Appointment> changedForUser(Map<String, Object> params);
+
+    java.util.List<Appointment> changedForEmployee(Map<String, Object> params);
+
+    // Every non-cancelled appointment, streamed to rebuild the SlotIndex
+    Cursor<Appointment> listActive();
+
+    Appointment findById(int id);
+
     Integer findConflict(java.util.Map<String, Object> params);
 
     void insertAppointment(Appointment appt);
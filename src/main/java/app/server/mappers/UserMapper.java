@@ -2,6 +2,7 @@ package app.server.mappers;
 
 import app.common.models.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 import java.util.Map;
@@ -17,6 +18,9 @@ public interface UserMapper {
     // Admin methods
     List<User> findAll();
 
+    // Keyset page: params afterId, fetchSize
+    Cursor<User> pageAll(Map<String, Object> params);
+
     void updateUser(User user);
 
     void deleteUser(int id);
@@ -0,0 +1,11 @@
+-- findConflict (employee, date, time range) and listByEmployee
+CREATE INDEX IF NOT EXISTS idx_appointments_employee_date
+    ON appointments (employee_id, date, start_time);
+
+-- listByUser and its paged variant (rowid order within one user)
+CREATE INDEX IF NOT EXISTS idx_appointments_user
+    ON appointments (user_id);
+
+-- listEmployees
+CREATE INDEX IF NOT EXISTS idx_users_role
+    ON users (role);
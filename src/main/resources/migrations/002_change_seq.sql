@@ -0,0 +1,15 @@
+-- change_seq: raised to MAX + 1 by every insert or status update, backs MY_APPTS_SINCE
+ALTER TABLE appointments ADD COLUMN change_seq INTEGER NOT NULL DEFAULT 0;
+
+UPDATE appointments SET change_seq = id;
+
+-- next sequence number (MAX lookup)
+CREATE INDEX IF NOT EXISTS idx_appointments_change_seq
+    ON appointments (change_seq);
+
+-- rows of one user or employee changed after a given sequence
+CREATE INDEX IF NOT EXISTS idx_appointments_user_seq
+    ON appointments (user_id, change_seq);
+
+CREATE INDEX IF NOT EXISTS idx_appointments_employee_seq
+    ON appointments (employee_id, change_seq);
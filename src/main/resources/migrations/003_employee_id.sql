@@ -0,0 +1,3 @@
+-- pageByEmployee: one employee's rows in id order after a keyset cursor, without a sort
+CREATE INDEX IF NOT EXISTS idx_appointments_employee_id
+    ON appointments (employee_id, id);
@@ -0,0 +1,99 @@
+package app.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireCodecTest {
+
+    private static byte[] encode(Object... fields) throws IOException {
+        WireCodec.Encoder enc = new WireCodec.Encoder().begin();
+        for (Object f : fields) enc.put(f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        enc.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static DataInputStream in(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    void fieldsSurviveRoundTrip() throws IOException {
+        List<Object> frame = WireCodec.readFrame(in(encode(7, "BOOK", null, "", -1, Integer.MAX_VALUE, "a|b c")));
+        assertEquals(Arrays.asList(7, "BOOK", null, "", -1, Integer.MAX_VALUE, "a|b c"), frame);
+    }
+
+    @Test
+    void nonAsciiAndLongStringsRoundTrip() throws IOException {
+        char[] big = new char[5000];
+        Arrays.fill(big, 'x');
+        String longAscii = new String(big);
+        String mixed = "café ✓ 😀 " + longAscii;
+        List<Object> frame = WireCodec.readFrame(in(encode(longAscii, mixed, "ü")));
+        assertEquals(Arrays.asList(longAscii, mixed, "ü"), frame);
+    }
+
+    @Test
+    void otherObjectsTravelAsStrings() throws IOException {
+        List<Object> frame = WireCodec.readFrame(in(encode(5L, true, 1.5)));
+        assertEquals(Arrays.asList("5", "true", "1.5"), frame);
+    }
+
+    @Test
+    void encoderIsReusableAndFramesFollowEachOther() throws IOException {
+        WireCodec.Encoder enc = new WireCodec.Encoder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        enc.begin().putInt(1).putString("first").writeTo(out);
+        enc.begin().putInt(2).putNull().writeTo(out);
+        DataInputStream din = in(out.toByteArray());
+        assertEquals(Arrays.asList(1, "first"), WireCodec.readFrame(din));
+        assertEquals(Arrays.asList(2, null), WireCodec.readFrame(din));
+        assertNull(WireCodec.readFrame(din));
+    }
+
+    @Test
+    void emptyFrameHasNoFields() throws IOException {
+        assertTrue(WireCodec.readFrame(in(encode())).isEmpty());
+    }
+
+    @Test
+    void peekLengthNeedsFourBytes() throws IOException {
+        byte[] bytes = encode("abc");
+        assertEquals(-1, WireCodec.peekLength(bytes, 0, 3));
+        assertEquals(bytes.length - 4, WireCodec.peekLength(bytes, 0, bytes.length));
+        assertEquals(Arrays.asList("abc"), WireCodec.decode(bytes, 4, bytes.length - 4));
+    }
+
+    @Test
+    void oversizedLengthIsRejected() {
+        byte[] header = {0x7f, 0, 0, 0};
+        assertThrows(IOException.class, () -> WireCodec.peekLength(header, 0, 4));
+        assertThrows(IOException.class, () -> WireCodec.readFrame(in(header)));
+    }
+
+    @Test
+    void truncatedInputIsRejected() throws IOException {
+        byte[] bytes = encode(42, "hello");
+        // Cut inside the string: the payload claims more bytes than it has.
+        assertThrows(EOFException.class, () -> WireCodec.decode(bytes, 4, bytes.length - 6));
+        // Cut inside the int.
+        assertThrows(EOFException.class, () -> WireCodec.decode(bytes, 4, 3));
+        // Stream ends in the middle of a frame.
+        assertThrows(EOFException.class, () -> WireCodec.readFrame(in(Arrays.copyOf(bytes, bytes.length - 1))));
+    }
+
+    @Test
+    void unknownFieldTypeIsRejected() {
+        byte[] payload = {9};
+        assertThrows(IOException.class, () -> WireCodec.decode(payload, 0, 1));
+    }
+}
@@ -0,0 +1,59 @@
+package app.server;
+
+import org.apache.ibatis.session.SqlSession;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppointmentQueryPlanTest {
+
+    @BeforeAll
+    static void database() throws Exception {
+        TestDatabase.init();
+    }
+
+    /**
+     * The EXPLAIN QUERY PLAN steps of a mapped statement, joined with "; ".
+     */
+    private static String plan(String statement, Object param) throws Exception {
+        try (SqlSession s = MyBatisUtil.openSession()) {
+            String sql = s.getConfiguration().getMappedStatement(statement).getBoundSql(param).getSql();
+            try (PreparedStatement ps = s.getConnection().prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+                for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) ps.setObject(i, null);
+                StringBuilder sb = new StringBuilder();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) sb.append(rs.getString("detail")).append("; ");
+                }
+                return sb.toString();
+            }
+        }
+    }
+
+    private static Map<String, Object> page() {
+        Map<String, Object> p = new HashMap<>();
+        p.put("ownerId", 1);
+        p.put("afterId", 0);
+        p.put("fetchSize", 50);
+        return p;
+    }
+
+    @Test
+    void employeePageWalksTheEmployeeIdIndexInOrder() throws Exception {
+        String plan = plan("app.server.mappers.AppointmentMapper.pageByEmployee", page());
+        assertTrue(plan.contains("idx_appointments_employee_id"), plan);
+        assertFalse(plan.contains("TEMP B-TREE"), plan);
+    }
+
+    @Test
+    void userPageWalksTheUserIndexInOrder() throws Exception {
+        String plan = plan("app.server.mappers.AppointmentMapper.pageByUser", page());
+        assertTrue(plan.contains("INDEX idx_appointments_user"), plan);
+        assertFalse(plan.contains("TEMP B-TREE"), plan);
+    }
+}
@@ -0,0 +1,57 @@
+package app.server;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeDirectoryTest {
+
+    @BeforeAll
+    static void database() throws Exception {
+        TestDatabase.init();
+    }
+
+    @Test
+    void snapshotIsReusedWhileVersionIsUnchanged() {
+        EmployeeDirectory dir = new EmployeeDirectory();
+        EmployeeDirectory.Snapshot first = dir.get();
+        assertEquals(dir.version(), first.version);
+        assertSame(first, dir.get());
+    }
+
+    @Test
+    void invalidateBumpsVersionAndReloads() throws Exception {
+        EmployeeDirectory dir = new EmployeeDirectory();
+        EmployeeDirectory.Snapshot before = dir.get();
+        String name = "emp_dir_" + System.nanoTime();
+        int id = TestDatabase.insertUser(name, "EMPLOYEE");
+
+        // Without invalidation the old list is still served.
+        assertSame(before, dir.get());
+
+        dir.invalidate();
+        EmployeeDirectory.Snapshot after = dir.get();
+        assertTrue(after.version > before.version);
+        assertEquals(before.rows.length + 1, after.rows.length);
+        assertTrue(Arrays.asList(after.lines).contains("EMP " + id + ":" + name), Arrays.toString(after.lines));
+    }
+
+    @Test
+    void linesMatchRows() {
+        EmployeeDirectory.Snapshot s = new EmployeeDirectory().get();
+        assertTrue(s.rows.length > 0, "seeded employee1 should be listed");
+        for (int i = 0; i < s.rows.length; i++) {
+            assertEquals("EMP " + s.rows[i][0] + ":" + s.rows[i][1], s.lines[i]);
+        }
+    }
+
+    @Test
+    void versionsDoNotRepeatAcrossRestarts() {
+        long before = System.currentTimeMillis();
+        EmployeeDirectory dir = new EmployeeDirectory();
+        assertTrue(dir.version() >= before);
+    }
+}
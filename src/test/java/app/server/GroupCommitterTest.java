@@ -0,0 +1,50 @@
+package app.server;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitterTest {
+    private static SqlSessionFactory factory;
+
+    @BeforeAll
+    static void database() throws Exception {
+        TestDatabase.init();
+        UnpooledDataSource ds = new UnpooledDataSource("org.sqlite.JDBC", ServerConfig.DB_URL, null, null);
+        factory = new DefaultSqlSessionFactory(new Configuration(
+                new Environment("test", new JdbcTransactionFactory(), ds)));
+    }
+
+    @Test
+    void rejectsWritesBeyondTheQueueCapacity() throws Exception {
+        GroupCommitter committer = new GroupCommitter(factory, 1, 0, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = committer.submit(s -> {
+            running.countDown();
+            release.await();
+            return "first";
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        Future<String> queued = committer.submit(s -> "queued");
+        assertThrows(RejectedExecutionException.class, () -> committer.submit(s -> "rejected"));
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        assertEquals("again", committer.submit(s -> "again").get(5, TimeUnit.SECONDS));
+    }
+}
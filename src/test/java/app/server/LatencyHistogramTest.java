@@ -0,0 +1,97 @@
+package app.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    private static final double MAX_ERROR = 1.125;
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.count());
+        assertEquals(0, h.meanMicros());
+        assertEquals(0, h.maxMicros());
+        assertEquals(0, h.percentileMicros(99));
+    }
+
+    @Test
+    void percentilesOfUniformValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int us = 1; us <= 1000; us++) h.recordNanos(us * 1000L);
+
+        assertEquals(1000, h.count());
+        assertEquals(500, h.meanMicros());
+        assertEquals(500_500, h.sumMicros());
+        assertEquals(1000, h.maxMicros());
+        assertBetween(500, 500 * MAX_ERROR, h.percentileMicros(50));
+        assertBetween(900, 900 * MAX_ERROR, h.percentileMicros(90));
+        assertBetween(990, 1000, h.percentileMicros(99));
+        assertEquals(1000, h.percentileMicros(100));
+    }
+
+    @Test
+    void percentileNeverExceedsMax() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.recordNanos(1_000_000);
+        assertEquals(1000, h.percentileMicros(50));
+        assertEquals(1000, h.percentileMicros(99.9));
+    }
+
+    @Test
+    void tailIsNotHiddenByTheBulk() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < 990; i++) h.recordNanos(100_000);
+        for (int i = 0; i < 10; i++) h.recordNanos(50_000_000);
+        assertBetween(100, 100 * MAX_ERROR, h.percentileMicros(99));
+        assertBetween(50_000, 50_000 * MAX_ERROR, h.percentileMicros(99.5));
+    }
+
+    @Test
+    void bucketUpperBoundIsWithinErrorBound() {
+        int previous = -1;
+        for (long us = 0; us < 5_000_000; us = us < 100 ? us + 1 : us + us / 7) {
+            int b = LatencyHistogram.bucket(us);
+            assertTrue(b >= previous, "buckets must not decrease at " + us);
+            previous = b;
+            long upper = LatencyHistogram.upperBound(b);
+            assertTrue(upper >= us, "upper bound below value at " + us);
+            assertTrue(upper <= Math.max(us, 7) * MAX_ERROR, "bucket too wide at " + us + ": " + upper);
+        }
+    }
+
+    @Test
+    void extremeAndNegativeValuesAreClamped() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.recordNanos(-5);
+        h.recordNanos(Long.MAX_VALUE);
+        assertEquals(2, h.count());
+        assertEquals(0, h.percentileMicros(50));
+        assertEquals(Long.MAX_VALUE / 1000, h.maxMicros());
+        assertEquals(Long.MAX_VALUE / 1000, h.percentileMicros(100));
+    }
+
+    @Test
+    void concurrentRecordingLosesNothing() throws InterruptedException {
+        LatencyHistogram h = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) h.recordNanos((i % 500 + offset) * 1000L);
+            }));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        assertEquals(80_000, h.count());
+        assertEquals(506, h.maxMicros());
+    }
+
+    private static void assertBetween(double low, double high, long actual) {
+        assertTrue(actual >= low && actual <= high, actual + " not in [" + low + ", " + high + "]");
+    }
+}
@@ -0,0 +1,73 @@
+package app.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    @Test
+    void issuedTokenResumesTheSession() {
+        SessionStore store = new SessionStore(10, 60_000);
+        String token = store.issue(5, "alice", "USER");
+        SessionStore.Session s = store.resume(token);
+        assertNotNull(s);
+        assertEquals(5, s.userId);
+        assertEquals("alice", s.username);
+        assertEquals("USER", s.role);
+    }
+
+    @Test
+    void tokensAreDistinctAndUnknownOnesFail() {
+        SessionStore store = new SessionStore(10, 60_000);
+        assertNotEquals(store.issue(1, "a", "USER"), store.issue(1, "a", "USER"));
+        assertNull(store.resume("no-such-token"));
+    }
+
+    @Test
+    void tokenExpiresAfterTtl() throws InterruptedException {
+        SessionStore store = new SessionStore(10, 50);
+        String token = store.issue(1, "a", "USER");
+        Thread.sleep(120);
+        assertNull(store.resume(token));
+        assertEquals("sessions=0/10", store.stats());
+    }
+
+    @Test
+    void useExtendsTheLifetime() throws InterruptedException {
+        SessionStore store = new SessionStore(10, 400);
+        String token = store.issue(1, "a", "USER");
+        Thread.sleep(250);
+        assertNotNull(store.resume(token));
+        Thread.sleep(250);
+        // 500 ms after issue, but only 250 ms after the last use.
+        assertNotNull(store.resume(token));
+    }
+
+    @Test
+    void revokeEndsOnlyThatUsersSessions() {
+        SessionStore store = new SessionStore(10, 60_000);
+        String a1 = store.issue(1, "a", "USER");
+        String a2 = store.issue(1, "a", "USER");
+        String b = store.issue(2, "b", "EMPLOYEE");
+
+        store.revokeUser(1);
+
+        assertNull(store.resume(a1));
+        assertNull(store.resume(a2));
+        assertNotNull(store.resume(b));
+    }
+
+    @Test
+    void leastRecentlyUsedIsDroppedAtCapacity() {
+        SessionStore store = new SessionStore(2, 60_000);
+        String a = store.issue(1, "a", "USER");
+        String b = store.issue(2, "b", "USER");
+        store.resume(a);
+        String c = store.issue(3, "c", "USER");
+
+        assertNull(store.resume(b));
+        assertNotNull(store.resume(a));
+        assertNotNull(store.resume(c));
+    }
+}
@@ -0,0 +1,98 @@
+package app.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotIndexTest {
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 4);
+
+    private static LocalTime t(String hhmm) {
+        return LocalTime.parse(hhmm);
+    }
+
+    @Test
+    void overlappingClaimIsRefused() {
+        SlotIndex index = new SlotIndex();
+        assertTrue(index.tryClaim(1, DAY, t("10:00"), t("10:30")));
+        assertFalse(index.tryClaim(1, DAY, t("10:00"), t("10:30")));
+        assertFalse(index.tryClaim(1, DAY, t("10:29"), t("11:00")));
+        assertFalse(index.tryClaim(1, DAY, t("09:45"), t("10:01")));
+    }
+
+    @Test
+    void adjacentRangesAndOtherKeysAreIndependent() {
+        SlotIndex index = new SlotIndex();
+        assertTrue(index.tryClaim(1, DAY, t("10:00"), t("10:30")));
+        assertTrue(index.tryClaim(1, DAY, t("09:30"), t("10:00")));
+        assertTrue(index.tryClaim(1, DAY, t("10:30"), t("11:00")));
+        assertTrue(index.tryClaim(2, DAY, t("10:00"), t("10:30")));
+        assertTrue(index.tryClaim(1, DAY.plusDays(1), t("10:00"), t("10:30")));
+    }
+
+    @Test
+    void releaseFreesTheRange() {
+        SlotIndex index = new SlotIndex();
+        assertTrue(index.tryClaim(1, DAY, t("10:00"), t("10:30")));
+        index.release(1, DAY, t("10:00"), t("10:30"));
+        assertTrue(index.tryClaim(1, DAY, t("10:00"), t("10:30")));
+    }
+
+    @Test
+    void releaseOfUnknownDayIsHarmless() {
+        SlotIndex index = new SlotIndex();
+        index.release(7, DAY, t("10:00"), t("10:30"));
+        assertTrue(index.tryClaim(7, DAY, t("10:00"), t("10:30")));
+    }
+
+    @Test
+    void freeMaskReportsWholeFreeSlots() {
+        SlotIndex index = new SlotIndex();
+        assertTrue(index.tryClaim(1, DAY, t("09:30"), t("10:00")));
+        assertTrue(index.tryClaim(1, DAY, t("10:45"), t("10:50")));
+        // Slots 09:00, 09:30, 10:00, 10:30: the second and fourth are taken (partly).
+        assertEquals(0b0101, index.freeMask(1, DAY, 9 * 60, 30, 4));
+        assertEquals(0b1111, index.freeMask(2, DAY, 9 * 60, 30, 4));
+    }
+
+    @Test
+    void emptyOrReversedRangeIsRejected() {
+        SlotIndex index = new SlotIndex();
+        assertThrows(IllegalArgumentException.class, () -> index.tryClaim(1, DAY, t("10:00"), t("10:00")));
+        assertThrows(IllegalArgumentException.class, () -> index.tryClaim(1, DAY, t("11:00"), t("10:00")));
+    }
+
+    @Test
+    void concurrentClaimsOfOneSlotHaveOneWinner() throws Exception {
+        SlotIndex index = new SlotIndex();
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger won = new AtomicInteger();
+        try {
+            for (int i = 0; i < threads; i++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                        if (index.tryClaim(1, DAY, t("14:00"), t("14:30"))) won.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, won.get());
+    }
+}
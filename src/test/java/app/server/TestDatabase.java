@@ -0,0 +1,60 @@
+package app.server;
+
+import app.common.models.User;
+import app.server.mappers.UserMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The database used by tests ({@code app.db.url}, set by surefire to a file under target/),
+ * recreated once per test run with the schema and seed users the server would create.
+ */
+final class TestDatabase {
+    private static final String PREFIX = "jdbc:sqlite:";
+    private static boolean ready;
+
+    private TestDatabase() {
+    }
+
+    static synchronized void init() throws Exception {
+        if (ready) return;
+        String url = ServerConfig.DB_URL;
+        if (!url.startsWith(PREFIX) || !url.contains("test")) {
+            throw new IllegalStateException("Refusing to run against " + url);
+        }
+        Files.deleteIfExists(Paths.get(url.substring(PREFIX.length())));
+        new MainServer(0);
+        ready = true;
+    }
+
+    /**
+     * Inserts a user with a throwaway password and returns its id.
+     */
+    static int insertUser(String username, String role) throws Exception {
+        User u = new User();
+        u.setUsername(username);
+        u.setSalt("c2FsdA==");
+        u.setHash("not-a-real-hash");
+        u.setRole(role);
+        MyBatisUtil.write(s -> {
+            s.getMapper(UserMapper.class).insertUser(u);
+            return null;
+        });
+        return u.getId();
+    }
+
+    static void updateUser(User u) throws Exception {
+        MyBatisUtil.write(s -> {
+            s.getMapper(UserMapper.class).updateUser(u);
+            return null;
+        });
+    }
+
+    static void deleteUser(int id) throws Exception {
+        MyBatisUtil.write(s -> {
+            s.getMapper(UserMapper.class).deleteUser(id);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package app.server;
+
+import app.common.models.User;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    @BeforeAll
+    static void database() throws Exception {
+        TestDatabase.init();
+    }
+
+    private static String unique(String base) {
+        return base + "_" + System.nanoTime();
+    }
+
+    @Test
+    void secondLookupIsServedFromMemory() throws Exception {
+        String name = unique("cache_hit");
+        int id = TestDatabase.insertUser(name, "USER");
+        UserCache cache = new UserCache(10);
+
+        assertEquals(id, (int) cache.findByUsername(name).getId());
+        assertEquals(name, cache.findById(id).getUsername());
+        assertTrue(cache.stats().contains("hits=1 misses=1"), cache.stats());
+    }
+
+    @Test
+    void staleUntilInvalidatedById() throws Exception {
+        String name = unique("cache_role");
+        int id = TestDatabase.insertUser(name, "USER");
+        UserCache cache = new UserCache(10);
+        User u = cache.findById(id);
+
+        u.setRole("EMPLOYEE");
+        TestDatabase.updateUser(u);
+        assertEquals("USER", cache.findById(id).getRole());
+
+        cache.invalidate(id);
+        assertEquals("EMPLOYEE", cache.findById(id).getRole());
+    }
+
+    @Test
+    void renameIsSeenAfterInvalidatingTheOldName() throws Exception {
+        String oldName = unique("cache_old");
+        String newName = unique("cache_new");
+        int id = TestDatabase.insertUser(oldName, "USER");
+        UserCache cache = new UserCache(10);
+        User u = cache.findByUsername(oldName);
+
+        u.setUsername(newName);
+        TestDatabase.updateUser(u);
+        cache.invalidate(oldName);
+
+        assertNull(cache.findByUsername(oldName));
+        assertEquals(id, (int) cache.findByUsername(newName).getId());
+        assertEquals(newName, cache.findById(id).getUsername());
+    }
+
+    @Test
+    void deletedUserIsGoneAfterInvalidation() throws Exception {
+        String name = unique("cache_del");
+        int id = TestDatabase.insertUser(name, "USER");
+        UserCache cache = new UserCache(10);
+        assertNotNull(cache.findById(id));
+
+        TestDatabase.deleteUser(id);
+        cache.invalidate(id);
+
+        assertNull(cache.findById(id));
+        assertNull(cache.findByUsername(name));
+    }
+
+    @Test
+    void clearDropsEverything() throws Exception {
+        String name = unique("cache_clear");
+        int id = TestDatabase.insertUser(name, "USER");
+        UserCache cache = new UserCache(10);
+        User u = cache.findById(id);
+
+        u.setRole("ADMIN");
+        TestDatabase.updateUser(u);
+        cache.clear();
+
+        assertEquals("ADMIN", cache.findByUsername(name).getRole());
+    }
+
+    @Test
+    void callersGetCopies() throws Exception {
+        String name = unique("cache_copy");
+        int id = TestDatabase.insertUser(name, "USER");
+        UserCache cache = new UserCache(10);
+
+        cache.findById(id).setRole("ADMIN");
+        assertEquals("USER", cache.findById(id).getRole());
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() throws Exception {
+        int a = TestDatabase.insertUser(unique("cache_lru_a"), "USER");
+        int b = TestDatabase.insertUser(unique("cache_lru_b"), "USER");
+        int c = TestDatabase.insertUser(unique("cache_lru_c"), "USER");
+        UserCache cache = new UserCache(2);
+        cache.findById(a);
+        cache.findById(b);
+        cache.findById(a);
+        cache.findById(c);   // evicts b
+        assertTrue(cache.stats().startsWith("userCache size=2/2 hits=1 misses=3"), cache.stats());
+
+        cache.findById(a);
+        cache.findById(b);
+        assertTrue(cache.stats().contains("hits=2 misses=4"), cache.stats());
+    }
+
+    @Test
+    void unknownUserIsNotCached() throws Exception {
+        UserCache cache = new UserCache(10);
+        assertNull(cache.findByUsername(unique("nobody")));
+        assertTrue(cache.stats().startsWith("userCache size=0/10"), cache.stats());
+    }
+}